@@ -27,6 +27,7 @@ package algorithms.deeps;
 import framework.GUI.Model;
 import java.util.HashMap;
 import keel.Dataset.InstanceSet;
+import org.core.RuleWriter;
 
 /**
  *
@@ -41,6 +42,8 @@ public class DeEPS_Wrapper extends Model{
     public void learn(InstanceSet training, HashMap<String, String> params){
        
         algorithm = new Deeps(training, params);
+        // Rules are only written to a file if "Rules File" is given
+        algorithm.setRuleWriter(new RuleWriter(params.get("Rules File"), true));
         algorithm.executeTrain();
         super.setPatterns(algorithm.getPatterns());
     }
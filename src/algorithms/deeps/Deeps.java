@@ -61,10 +61,14 @@ public class Deeps extends LazyAlgorithm {
 
     //Adictional structures
     double classData[][][];
-    int binaryData[][][];
-    Itemset maxBorder[][];
-    int maxBorderSize[];
-    double score[];
+
+    //Neighbourhood index: for each class and attribute, the values of the
+    //training instances sorted in ascending order and the row of each value
+    double sortedValues[][][];
+    int sortedRows[][][];
+
+    //Scratch structures of the evaluation, one per thread
+    transient ThreadLocal<Workspace> workspaces;
 
     /**
      * The main method of the class
@@ -134,16 +138,7 @@ public class Deeps extends LazyAlgorithm {
             index[instanceClass]++;
         }
 
-        binaryData = new int[nClasses][][];
-
-        for (int i = 0; i < nClasses; i++) {
-            binaryData[i] = new int[nInstances[i]][inputAtt];
-        }
-
-        maxBorder = new Itemset[nClasses][];
-        maxBorderSize = new int[nClasses];
-
-        score = new double[nClasses];
+        buildNeighbourhoodIndex();
 
         //set Itemset max size
         Itemset.setMaxItems(inputAtt);
@@ -161,6 +156,91 @@ public class Deeps extends LazyAlgorithm {
         return ALPHA;
     }
 
+    /**
+     * Builds the neighbourhood index. For each class and attribute, the
+     * training values are sorted along with the row they belong to, so the
+     * rows within [x-ALPHA, x+ALPHA] of a query value are found by binary
+     * search.
+     *
+     */
+    private void buildNeighbourhoodIndex() {
+
+        sortedValues = new double[nClasses][inputAtt][];
+        sortedRows = new int[nClasses][inputAtt][];
+
+        for (int k = 0; k < nClasses; k++) {
+
+            final double data[][] = classData[k];
+            Integer rows[] = new Integer[nInstances[k]];
+
+            for (int j = 0; j < inputAtt; j++) {
+
+                final int att = j;
+
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = i;
+                }
+                Arrays.sort(rows, (a, b) -> Double.compare(data[a][att], data[b][att]));
+
+                sortedValues[k][j] = new double[rows.length];
+                sortedRows[k][j] = new int[rows.length];
+
+                for (int i = 0; i < rows.length; i++) {
+                    sortedValues[k][j][i] = data[rows[i]][j];
+                    sortedRows[k][j][i] = rows[i];
+                }
+            }
+        }
+
+    }//end-method
+
+    /**
+     * Returns the position of the first value of a sorted array which is not
+     * lower than a given key.
+     *
+     * @param values Values sorted in ascending order
+     * @param key Key searched
+     * @return The position found, values.length if every value is lower
+     *
+     */
+    private static int lowerBound(double values[], double key) {
+
+        int low = 0;
+        int high = values.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+
+    }//end-method
+
+    /**
+     * Returns the workspace of the calling thread, creating it on its first
+     * use.
+     *
+     * @return The evaluation workspace of the current thread
+     */
+    private Workspace getWorkspace() {
+
+        if (workspaces == null) {
+            synchronized (this) {
+                if (workspaces == null) {
+                    workspaces = ThreadLocal.withInitial(() -> new Workspace(nInstances, inputAtt));
+                }
+            }
+        }
+
+        return workspaces.get();
+
+    }//end-method
+
     /**
      * Reads configuration script, to extract the parameter's values.
      *
@@ -211,36 +291,44 @@ public class Deeps extends LazyAlgorithm {
      * Evaluates a instance to predict its class.
      *
      * @param example Instance evaluated
-     * @param file File to save the patterns
      * @param type Indicates 0 for training and 1 for test
+     * @param ruleSet Where the EPs found in training are stored as rules
      * @return Class predicted
      *
      */
-    protected int evaluate(double example[], String nFile, int type, Vector ruleSet) {
+    protected int evaluate(double example[], int type, Vector ruleSet) {
 
         int output = -1;
         double min;
         double max;
-        double value;
+        double values[];
+        int rows[];
         Itemset EPs[];
-        String contents = "";
+        Workspace ws = getWorkspace();
+        long binaryData[][][] = ws.binaryData;
+        double score[] = ws.score;
 
-        //calculate binary data
+        //calculate binary data, packed in 64-bit words
+        for (int k = 0; k < nClasses; k++) {
+            for (int i = 0; i < nInstances[k]; i++) {
+                Arrays.fill(binaryData[k][i], 0L);
+            }
+        }
+
+        //only the rows within [x-ALPHA, x+ALPHA] are visited, using the
+        //neighbourhood index
         for (int j = 0; j < example.length; j++) {
 
             min = example[j] - ALPHA;
             max = example[j] + ALPHA;
 
             for (int k = 0; k < nClasses; k++) {
-                for (int i = 0; i < nInstances[k]; i++) {
 
-                    value = classData[k][i][j];
+                values = sortedValues[k][j];
+                rows = sortedRows[k][j];
 
-                    if ((value <= max) && (value >= min)) {
-                        binaryData[k][i][j] = 1;
-                    } else {
-                        binaryData[k][i][j] = 0;
-                    }
+                for (int i = lowerBound(values, min); i < values.length && values[i] <= max; i++) {
+                    binaryData[k][rows[i]][j >>> 6] |= 1L << j;
                 }
 
             }
@@ -256,15 +344,13 @@ public class Deeps extends LazyAlgorithm {
         for (int k = 0; k < nClasses; k++) {
             for (int i = 0; i < nInstances[k]; i++) {
                 if (same(example, classData[k][i])) {
-                    for (int j = 0; j < example.length; j++) {
-                        binaryData[k][i][j] = 0;
-                    }
+                    Arrays.fill(binaryData[k][i], 0L);
                 }
             }
         }
 
         //extract horizontal borders
-        extractHorizontals();
+        extractHorizontals(ws);
         /*
                 for(int i=0; i< nClasses; i++){
 			System.out.println("Clase "+i+" Bordes:"+maxBorder[i].length);
@@ -279,36 +365,19 @@ public class Deeps extends LazyAlgorithm {
 
             //System.out.println("Clase: "+i);
             //apply jepProducer
-            EPs = jepProducer(i);
+            EPs = jepProducer(ws, i);
 
-            //Introduce all EPs in the file
+            //Introduce all EPs in the rule set. They are written to the rules
+            //file by executeTrain, once every instance has been evaluated
             if (type == 0) {
-//                int nl;
-//                String linea;
-//                String fichero = File.readFile(nFile);
-//                StringTokenizer lineasFichero = new StringTokenizer(fichero, "\n\r");
-//                for (nl = 0, linea = lineasFichero.nextToken(); lineasFichero.hasMoreTokens(); linea = lineasFichero.nextToken()) {
-//                    nl++;
-//                }
-//                DecimalFormat df = new DecimalFormat("0.0000");
                 for (int j = 0; j < EPs.length; j++) {
                     Rule r = new Rule(inputs.length, i);
-//                    contents = "Rule " + nl + ": IF ";
-//                    r.setNumber(nl);
-                    for (int j2 = 0; j2 < EPs[j].getSize(); j2++) {
-//                        contents += inputs[EPs[j].get(j2)].getName() + "=" + df.format(example[EPs[j].get(j2)]);
-                        if (j2 != EPs[j].getSize() - 1) {
-//                            contents += " AND ";
-                        }
-                        r.setVar(EPs[j].get(j2), example[EPs[j].get(j2)]);
+                    for (int item = EPs[j].nextItem(0); item >= 0; item = EPs[j].nextItem(item + 1)) {
+                        r.setVar(item, example[item]);
                     }
-//                    contents += " THEN " + this.output.getNominalValue(i);
                     r.setRuleClass(i);
-                    double score = calculateScoreOneEP(EPs, i, j);
-//                    contents += "\t(" + df.format(score) + ")\n";
-                    r.setScore(score);
-                    File.AddtoFile(nFile, contents);
-//                    nl++;
+                    double epScore = calculateScoreOneEP(ws, EPs, i, j);
+                    r.setScore(epScore);
 
                     ruleSet.add(r);
 
@@ -316,7 +385,7 @@ public class Deeps extends LazyAlgorithm {
             }
 
             //check score
-            score[i] = calculateScore(EPs, i);
+            score[i] = calculateScore(ws, EPs, i);
 
             //System.out.println("Patrones");
             //for(int j=0; j< EPs.length; j++){
@@ -348,11 +417,14 @@ public class Deeps extends LazyAlgorithm {
      * each class, trying to cover with it every intance in each class train
      * data
      *
+     * @param ws Workspace of the instance evaluated
+     *
      */
-    private void extractHorizontals() {
+    private void extractHorizontals(Workspace ws) {
 
-        Itemset aux;
         boolean subset;
+        long binaryData[][][] = ws.binaryData;
+        Itemset maxBorder[][] = ws.maxBorder;
 
         //For each class, extract maximal itemsets
         for (int k = 0; k < nClasses; k++) {
@@ -361,20 +433,18 @@ public class Deeps extends LazyAlgorithm {
 
                 maxBorder[k] = new Itemset[1];
                 maxBorder[k][0] = new Itemset(binaryData[k][0]);
-                maxBorderSize[k] = 1;
+                ws.maxBorderSize[k] = 1;
 
                 for (int i = 1; i < nInstances[k]; i++) {
 
-                    aux = new Itemset(binaryData[k][i]);
-
                     subset = false;
                     for (int index = 0; index < maxBorder[k].length && !subset; index++) {
-                        if (aux.isSubset(maxBorder[k][index])) {
+                        if (maxBorder[k][index].isSuperSetBinary(binaryData[k][i])) {
                             subset = true;
                         }
                     }
                     if (!subset) {
-                        insertItemset(aux, k, i);
+                        insertItemset(ws, new Itemset(binaryData[k][i]), k, i);
                     }
                 }
             } else {
@@ -389,15 +459,18 @@ public class Deeps extends LazyAlgorithm {
      * Inserts a Itemset in the border of a class, cleaning the itemsets
      * subsumited
      *
+     * @param ws Workspace of the instance evaluated
      * @param newIt New Itemset to insert
      * @param inClass Class selected
      *
      */
-    private void insertItemset(Itemset newIt, int inClass, int index) {
+    private void insertItemset(Workspace ws, Itemset newIt, int inClass, int index) {
 
         Itemset copy[];
         boolean subset;
         int copySize;
+        Itemset maxBorder[][] = ws.maxBorder;
+        int maxBorderSize[] = ws.maxBorderSize;
 
         //At first, we copy the new Itemset
         copy = new Itemset[maxBorderSize[inClass] + 1];
@@ -432,18 +505,20 @@ public class Deeps extends LazyAlgorithm {
      * Scoring method. It uses the borders discovered before to score the
      * pertenency of the instance to the class
      *
+     * @param ws Workspace of the instance evaluated
      * @param border Borders discovered
      * @param nClass Class tested
      * @return Score calculated
      *
      */
-    private double calculateScore(Itemset border[], int nClass) {
+    private double calculateScore(Workspace ws, Itemset border[], int nClass) {
 
         double score;
         int size;
         int selected[];
         Itemset aux;
         int count;
+        long binaryData[][][] = ws.binaryData;
 
         size = nInstances[nClass];
         selected = new int[size];
@@ -479,18 +554,20 @@ public class Deeps extends LazyAlgorithm {
      * Scoring method. It uses the borders discovered before to score the
      * pertenency of the instance to the class
      *
+     * @param ws Workspace of the instance evaluated
      * @param border Borders discovered
      * @param nClass Class tested
      * @return Score calculated
      *
      */
-    private double calculateScoreOneEP(Itemset border[], int nClass, int pos) {
+    private double calculateScoreOneEP(Workspace ws, Itemset border[], int nClass, int pos) {
 
         double score;
         int size;
         int selected[];
         Itemset aux;
         int count;
+        long binaryData[][][] = ws.binaryData;
 
         size = nInstances[nClass];
         selected = new int[size];
@@ -522,11 +599,12 @@ public class Deeps extends LazyAlgorithm {
      * The jepProducer algorithm. Discovers the EPs border from the test
      * instance to every horizontal border from each class.
      *
+     * @param ws Workspace of the instance evaluated
      * @param nClass Index to class tested
      * @return EPs border discovered
      *
      */
-    private Itemset[] jepProducer(int nClass) {
+    private Itemset[] jepProducer(Workspace ws, int nClass) {
 
         Itemset result[];
         Itemset aux[];
@@ -536,6 +614,7 @@ public class Deeps extends LazyAlgorithm {
         int unionIndex;
         int auxIndex;
         boolean isSubset;
+        Itemset maxBorder[][] = ws.maxBorder;
 
         aux = new Itemset[maxBorder[nClass].length];
 
@@ -36,6 +36,10 @@
  * elements, test if is a subset or a superset of any other
  * itemset, and more.  
  * 
+ * Items are stored as a bitset packed in 64-bit words, so
+ * subset tests, differences and unions are computed a whole
+ * word at a time.
+ * 
  * @author Written by Joaqu�n Derrac (University of Granada) 13/11/2008 
  * @version 1.0 
  * @since JDK1.5
@@ -46,12 +50,15 @@ package algorithms.deeps;
 class Itemset {
 
 
-	private int items [];
+	private long words [];
 	private int size;	
 	
 	//maximun size allowed
 	private static int maxItems=1;
 	
+	//number of words needed to hold maxItems items
+	private static int nWords=1;
+	
 	/** 
 	 * Sets the maximun size allowed for every Itemset
 	 * 
@@ -61,6 +68,20 @@ class Itemset {
 	public static void setMaxItems(int value){
 		
 		maxItems=value;
+		nWords=wordsFor(value);
+		
+	}//end-method 
+	
+	/** 
+	 * Number of 64-bit words needed to store a given number of items
+	 * 
+	 * @param items Number of items
+	 * @return The number of words
+	 * 
+	 */
+	public static int wordsFor(int items){
+		
+		return Math.max(1,(items+63)>>>6);
 		
 	}//end-method 
 	
@@ -70,26 +91,27 @@ class Itemset {
 	 */	
 	public Itemset(){
 		
-		items= new int [maxItems];
+		words= new long [nWords];
 		size=0;
 		
 	}//end-method 
 	
 	/** 
-	 * Buider.Builts an itemset, using a binary vector which
-	 * represent what items are going to be present in the Itemset 
+	 * Buider.Builts an itemset, using a binary vector packed in
+	 * 64-bit words which represent what items are going to be
+	 * present in the Itemset 
 	 * 
-	 * @param inItems Binary items vector  
+	 * @param inItems Binary items vector, packed in words  
 	 * 
 	 */
-	public Itemset(int inItems[]){
+	public Itemset(long inItems[]){
 		
-		items= new int [maxItems];
+		words= new long [nWords];
+		size=0;
 		
 		for(int i=0;i<inItems.length;i++){	
-			if(inItems[i]==1){
-				this.add(i);
-			}
+			words[i]=inItems[i];
+			size+=Long.bitCount(inItems[i]);
 		}
 		
 	}//end-method 
@@ -103,12 +125,18 @@ class Itemset {
 	 */	
 	public int contains(int value){
 		
-		for(int i=0;i<size;i++){	
-			if(items[i]==value){
-				return i;
-			}
+		int word=value>>>6;
+		long mask=1L<<value;
+		
+		if((words[word]&mask)==0){
+			return -1;
+		}
+		
+		int position=Long.bitCount(words[word]&(mask-1));
+		for(int i=0;i<word;i++){	
+			position+=Long.bitCount(words[i]);
 		}	
-		return -1;
+		return position;
 		
 	}//end-method 
 
@@ -121,9 +149,11 @@ class Itemset {
 	 */
 	public void add(int value){
 			
-		if(this.contains(value)==-1){
+		long mask=1L<<value;
+		
+		if((words[value>>>6]&mask)==0){
 
-			items[size]=value;
+			words[value>>>6]|=mask;
 			size++;
 		}
 		
@@ -137,12 +167,10 @@ class Itemset {
 	 */
 	public void drop(int value){
 		
-		int position=this.contains(value);
+		long mask=1L<<value;
 		
-		if(position>-1){
-			for(int i=position;i<size;i++){	
-				items[i]=items[i+1];
-			}	
+		if((words[value>>>6]&mask)!=0){
+			words[value>>>6]&=~mask;
 			size--;
 		}
 		
@@ -157,7 +185,42 @@ class Itemset {
 	 */
 	public int get(int position){
 		
-		return items[position];
+		int item=nextItem(0);
+		
+		for(int i=0;i<position;i++){	
+			item=nextItem(item+1);
+		}
+		return item;
+		
+	}//end-method  
+
+	/** 
+	 * Returns the first item of the Itemset which is greater or
+	 * equal than a given value.
+	 * 
+	 * @param from Value where the search starts
+	 * @return The item found. -1 if there are no more items
+	 * 
+	 */
+	public int nextItem(int from){
+		
+		int word=from>>>6;
+		
+		if(word>=words.length){
+			return -1;
+		}
+		
+		long bits=words[word]&(-1L<<from);
+		
+		while(bits==0){
+			word++;
+			if(word==words.length){
+				return -1;
+			}
+			bits=words[word];
+		}
+		
+		return (word<<6)+Long.numberOfTrailingZeros(bits);
 		
 	}//end-method  
 
@@ -182,8 +245,12 @@ class Itemset {
 	 */
 	public boolean isSubset(Itemset great){
 		
-		for(int i=0;i<size;i++){	
-			if(great.contains(items[i])==-1){
+		if(size>great.size){
+			return false;
+		}
+		
+		for(int i=0;i<words.length;i++){	
+			if((words[i]&~great.words[i])!=0){
 				return false;
 			}
 		}	
@@ -201,14 +268,7 @@ class Itemset {
 	 */
 	public boolean isSuperset(Itemset little){
 		
-		
-		for(int i=0;i<little.getSize();i++){	
-			if(this.contains(little.get(i))==-1){
-				return false;
-			}
-		}	
-
-		return true;
+		return little.isSubset(this);
 		
 	}//end-method 
 
@@ -224,10 +284,9 @@ class Itemset {
 		
 		Itemset result=new Itemset();
 		
-		for(int i=0;i<size;i++){	
-			if(other.contains(items[i])==-1){
-				result.add(items[i]);
-			}
+		for(int i=0;i<words.length;i++){	
+			result.words[i]=words[i]&~other.words[i];
+			result.size+=Long.bitCount(result.words[i]);
 		}	
 
 		return result;
@@ -246,29 +305,47 @@ class Itemset {
 		
 		Itemset result=new Itemset();
 
-		for(int i=0;i<size;i++){	
-			result.add(items[i]);
+		for(int i=0;i<words.length;i++){	
+			result.words[i]=words[i]|other.words[i];
+			result.size+=Long.bitCount(result.words[i]);
 		}	
 
-		for(int i=0;i<other.getSize();i++){	
-			result.add(other.get(i));
-		}
 		return result;
 		
 	}//end-method 
 
+	/** 
+	 * Test if the Itemset is a subset of another Itemset,
+	 * represented in binary form.
+	 * 
+	 * @param array Binary itemset to compare, packed in words 
+	 * @return True if the Itemset is a subset of 'array'. Else, returns false
+	 * 
+	 */
+	public boolean isSubSetBinary(long array[]){
+		
+		for(int i=0;i<words.length;i++){	
+			if((words[i]&~array[i])!=0){
+				return false;
+			}
+		}	
+
+		return true;
+	
+	}//end-method 
+
 	/** 
 	 * Test if the Itemset is a superset of another Itemset,
 	 * represented in binary form.
 	 * 
-	 * @param array Binary itemset to compare 
-	 * @return True if the Itemset is a supersetset of 'array'. Else, returns false
+	 * @param array Binary itemset to compare, packed in words 
+	 * @return True if the Itemset is a superset of 'array'. Else, returns false
 	 * 
 	 */
-	public boolean isSubSetBinary(int array[]){
+	public boolean isSuperSetBinary(long array[]){
 		
-		for(int i=0;i<size;i++){	
-			if(array[items[i]]==0){
+		for(int i=0;i<words.length;i++){	
+			if((array[i]&~words[i])!=0){
 				return false;
 			}
 		}	
@@ -288,8 +365,8 @@ class Itemset {
 		String chain="";
 		
 		chain+=" <";
-		for(int i=0;i<size;i++){
-			chain+=items[i]+" ";
+		for(int i=nextItem(0);i>=0;i=nextItem(i+1)){
+			chain+=i+" ";
 		}
 		chain+=">";
 		
@@ -53,18 +53,20 @@ import framework.items.NominalItem;
 import framework.GUI.Model;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import keel.Dataset.Attribute;
 import keel.Dataset.Attributes;
 import keel.Dataset.Instance;
 import keel.Dataset.InstanceSet;
-import org.core.File;
+import org.core.RuleWriter;
 
 import org.core.Files;
 
@@ -106,6 +108,9 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
     protected Vector rulesFilterAll;
     protected Vector rulesFilterByClass;
 
+    //Output of the rules found in training. Turned off by default
+    protected transient RuleWriter ruleWriter = new RuleWriter();
+
     //Timing
     protected long initialTime;
 
@@ -522,6 +527,7 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
 //        super.patternsFilteredMaximal = new ArrayList<>();
         ArrayList<Pattern> patt = new ArrayList<>();
         double alph2 = this.ALPHA;
+        DecimalFormat df = new DecimalFormat("0.0000");
         try {
             modelTime = ((double) System.currentTimeMillis() - initialTime) / 1000.0;
             System.out.println(name + " " + relation + " Model " + modelTime + "s");
@@ -529,17 +535,26 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
             trainRealClass = new int[trainData.length][1];
             trainPrediction = new int[trainData.length][1];
 
-            rules = new Vector();
+            Vector<Rule> trainRules = new Vector<>();
+            rules = trainRules;
 
             //Check  time		
             setInitialTime();
 
             //File.writeFile(outFile[3], "\t\n");
-            //Working on training
-            for (int i = 0; i < trainRealClass.length; i++) {
+            //Working on training. Instances are evaluated in parallel, each one
+            //storing its rules on its own slot of the sink, so the rule set
+            //keeps the same order as in a sequential evaluation.
+            List<Vector<Rule>> sink = new ArrayList<>(Collections.nCopies(trainRealClass.length, null));
+            IntStream.range(0, trainRealClass.length).parallel().forEach(i -> {
                 //System.out.println("Instance number: "+i);
+                Vector<Rule> instanceRules = new Vector<>();
                 trainRealClass[i][0] = trainOutput[i];
-                trainPrediction[i][0] = evaluate(trainData[i], "null", 0, rules);
+                trainPrediction[i][0] = evaluate(trainData[i], 0, instanceRules);
+                sink.set(i, instanceRules);
+            });
+            for (Vector<Rule> instanceRules : sink) {
+                trainRules.addAll(instanceRules);
             }
 
             //Writing results
@@ -568,8 +583,14 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
                 Pattern p = new Pattern(its, r.getRuleClass());
                 //p.setALPHA(ALPHA);
                 patt.add(p);
+                if (ruleWriter != null && ruleWriter.isEnabled()) {
+                    ruleWriter.write("Rule " + i + ": " + p.toString() + "\t(" + df.format(r.getScore()) + ")\n");
+                }
             }
             super.setPatterns(patt);
+            if (ruleWriter != null) {
+                ruleWriter.close();
+            }
 
             trainingTime = ((double) System.currentTimeMillis() - initialTime) / 1000.0;
             System.out.println(name + " " + relation + " Training " + trainingTime + "s");
@@ -578,6 +599,16 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
         }
     }
 
+    /**
+     * Sets where the rules found in training are written. The writer is
+     * closed once the training finishes.
+     *
+     * @param ruleWriter The writer of the rules
+     */
+    public void setRuleWriter(RuleWriter ruleWriter) {
+        this.ruleWriter = ruleWriter;
+    }
+
     public String[][] executeTest(InstanceSet test) {
         this.test = test;
         this.test.setAttributesAsNonStatic();
@@ -607,12 +638,12 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
         //Check  time		
         setInitialTime();
 
-        for (int i = 0; i < realClass.length; i++) {
+        IntStream.range(0, realClass.length).parallel().forEach(i -> {
             realClass[i][0] = testOutput[i];
-            prediction[i][0] = evaluate(testData[i], "", 1, rules);
-            prediction[i][1] = evaluate(testData[i], "", 1, rulesFilterAll);
-            prediction[i][2] = evaluate(testData[i], "", 1, rulesFilterByClass);
-        }
+            prediction[i][0] = evaluate(testData[i], 1, rules);
+            prediction[i][1] = evaluate(testData[i], 1, rulesFilterAll);
+            prediction[i][2] = evaluate(testData[i], 1, rulesFilterByClass);
+        });
         // Get predictions strings.
         for (int i = 0; i < prediction.length; i++) {
             for (int j = 0; j < 3; j++) {
@@ -926,7 +957,7 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
         //Working on training
         for (int i = 0; i < trainRealClass.length; i++) {
             trainRealClass[i][0] = referenceOutput[i];
-            trainPrediction[i][0] = evaluate(referenceData[i], "", 0, rules);
+            trainPrediction[i][0] = evaluate(referenceData[i], 0, rules);
         }
 
         trainingTime = ((double) System.currentTimeMillis() - initialTime) / 1000.0;
@@ -944,7 +975,7 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
 
         for (int i = 0; i < realClass.length; i++) {
             realClass[i][0] = testOutput[i];
-            prediction[i][0] = evaluate(testData[i], "", 1, rules);
+            prediction[i][0] = evaluate(testData[i], 1, rules);
         }
 
         testTime = ((double) System.currentTimeMillis() - initialTime) / 1000.0;
@@ -962,12 +993,12 @@ public abstract class LazyAlgorithm extends DeEPS_Wrapper {
      * subclass.
      *
      * @param example Instance evaluated
-     * @param file File to save the patterns
      * @param type Indicates 0 for training and 1 for test
+     * @param setRule Where the patterns found in training are stored
      * @return The class predicted. -1 if the instance remains "Unclassified"
      *
      */
-    protected abstract int evaluate(double example[], String file, int type, Vector setRule);
+    protected abstract int evaluate(double example[], int type, Vector setRule);
 
     /**
      * Calculates the Euclidean distance between two instances
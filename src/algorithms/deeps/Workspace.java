@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 angel.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package algorithms.deeps;
+
+/**
+ * Scratch structures used by {@link Deeps} to evaluate one instance: the
+ * binarized training data (each row packed in 64-bit words), the horizontal
+ * borders of each class and the score of each class. A workspace is owned by a single thread, so several
+ * instances can be evaluated concurrently against the same training data.
+ *
+ * @version 1.0
+ * @since JDK 1.8
+ */
+class Workspace {
+
+    long binaryData[][][];
+    Itemset maxBorder[][];
+    int maxBorderSize[];
+    double score[];
+
+    /**
+     * Builds the workspace for the given class distribution.
+     *
+     * @param nInstances Number of training instances of each class
+     * @param inputAtt Number of input attributes
+     */
+    public Workspace(int nInstances[], int inputAtt) {
+
+        int nClasses = nInstances.length;
+
+        binaryData = new long[nClasses][][];
+
+        for (int i = 0; i < nClasses; i++) {
+            binaryData[i] = new long[nInstances[i]][Itemset.wordsFor(inputAtt)];
+        }
+
+        maxBorder = new Itemset[nClasses][];
+        maxBorderSize = new int[nClasses];
+
+        score = new double[nClasses];
+
+    }//end-method
+
+} //end-class
@@ -26,15 +26,21 @@ package algorithms.dgcp_tree;
 import framework.GUI.Model;
 import framework.items.Item;
 import framework.items.Pattern;
+import framework.items.PatternPrefix;
+import framework.utils.LongBitSet;
 import framework.utils.Utils;
 import framework.utils.bsc_tree.BSCTree;
 import framework.utils.cptree.Par;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import javafx.util.Pair;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import javax.print.attribute.HashAttributeSet;
 import keel.Dataset.InstanceSet;
 
@@ -64,16 +70,16 @@ public class DGCPTree extends Model {
     /**
      * The bit strings for each item on the positive class.
      */
-    HashMap<Item, String> bitStringsPos;
+    HashMap<Item, LongBitSet> bitStringsPos;
     /**
      * The bit strings for each item on the negative class.
      */
-    HashMap<Item, String> bitStringsNeg;
+    HashMap<Item, LongBitSet> bitStringsNeg;
 
     /**
      * It stores the items that are covered by another one in Dn
      */
-    HashMap<Item, ArrayList<Item>> coverDn;
+    HashMap<Item, HashSet<Item>> coverDn;
 
     /**
      * The path code for the positive dataset for each single item
@@ -94,7 +100,7 @@ public class DGCPTree extends Model {
         for (int i = 0; i < numClasses; i++) {
             System.out.println("Mining Class: " + training.getAttributeDefinitions().getOutputAttribute(0).getNominalValue(i));
             buildInitialTree(Utils.generatePatterns(training, i), minSupport, i);
-            mineGrowingTree(root, minCounts, new Pattern(new ArrayList<Item>(), i));
+            mineGrowingTree(root, minCounts, PatternPrefix.EMPTY, i);
         }
         System.out.println("Mining Time: " + ((System.currentTimeMillis() - t_ini) / 1000.0) + " seconds");
     }
@@ -118,8 +124,6 @@ public class DGCPTree extends Model {
      * [0,1].
      */
     public void buildInitialTree(ArrayList<Pattern> dataset, double minimumSupport, int clase) {
-        // it stores the BSC-Trees for positive (key) and negative (value) class for each item.
-        HashMap<Item, Pair<BSCTree, BSCTree>> items = new HashMap<>();
         // it stores the counts for calculate the support-ratio of each item.
         HashMap<Item, Par> counts = new HashMap<>();
 
@@ -132,10 +136,12 @@ public class DGCPTree extends Model {
         this.coverDn = new HashMap<>();
         int minCounts = ((Double) (minimumSupport * dataset.size())).intValue();
 
-        // Split the dataset into Dp and Dn, and calculate the counts for the supportRatio of each item.
+        // Split the dataset into Dp and Dn, and calculate the counts for the supportRatio
+        // and the bit string of each item.
         ArrayList<Pattern> Dp = new ArrayList<>();
         ArrayList<Pattern> Dn = new ArrayList<>();
-        for (Pattern p : dataset) {
+        for (int i = 0; i < dataset.size(); i++) {
+            Pattern p = dataset.get(i);
             if (p.getClase() == 0) {
                 Dp.add(p);
             } else {
@@ -145,12 +151,16 @@ public class DGCPTree extends Model {
             for (Item it : p.getItems()) {
                 if (!counts.containsKey(it)) {
                     counts.put(it, new Par());
+                    bitStringsPos.put(it, new LongBitSet(dataset.size()));
+                    bitStringsNeg.put(it, new LongBitSet(dataset.size()));
                 }
 
                 if (p.getClase() == 0) {
                     counts.get(it).D1++;
+                    bitStringsPos.get(it).set(i);
                 } else {
                     counts.get(it).D2++;
+                    bitStringsNeg.get(it).set(i);
                 }
             }
         }
@@ -169,23 +179,6 @@ public class DGCPTree extends Model {
                 suppRatio = ((Integer) next.getValue().D1).doubleValue() / ((Integer) next.getValue().D2).doubleValue();
             }
             supportRatio.put(next.getKey(), suppRatio);
-            bitStringsPos.put(next.getKey(), createZeroString(dataset.size()));
-            bitStringsNeg.put(next.getKey(), createZeroString(dataset.size()));
-        }
-
-        // Calculates the bit string of each item. 
-        for (int i = 0; i < dataset.size(); i++) {
-            for (Item it : dataset.get(i).getItems()) {
-                if (dataset.get(i).getClase() == 0) {
-                    char[] charArray = bitStringsPos.get(it).toCharArray();
-                    charArray[i] = '1';
-                    bitStringsPos.put(it, String.valueOf(charArray));
-                } else {
-                    char[] charArray = bitStringsNeg.get(it).toCharArray();
-                    charArray[i] = '1';
-                    bitStringsNeg.put(it, String.valueOf(charArray));
-                }
-            }
         }
 
         // Calculate the BSC-Tree of each item and add it to an auxiliar node
@@ -195,8 +188,8 @@ public class DGCPTree extends Model {
         Node aux = new Node();
         while (iterator.hasNext()) {
             Map.Entry<Item, Par> next = iterator.next();
-            BSCTree positive = new BSCTree(bitStringsPos.get(next.getKey()));
-            BSCTree negative = new BSCTree(bitStringsNeg.get(next.getKey()));
+            BSCTree positive = new BSCTree(bitStringsPos.get(next.getKey()).getWords(), dataset.size());
+            BSCTree negative = new BSCTree(bitStringsNeg.get(next.getKey()).getWords(), dataset.size());
             // If the support of the item  in the positive class is greater then the threshold, add it to the auxiliar node
             if (positive.getCounts() >= minCounts && negative.getCounts() != dataset.size()) {
                 Node child = new Node();
@@ -228,7 +221,7 @@ public class DGCPTree extends Model {
 
         // Get the set of coveredDn values
         for (int i = 0; i < root.numChilds(); i++) {
-            ArrayList<Item> cov = new ArrayList<>();
+            HashSet<Item> cov = new HashSet<>();
             for (int j = 0; j < root.numChilds(); j++) {
                 if (j != i) {
                     if (root.getChild(i).getPcArrNeg().covers(root.getChild(j).getPcArrNeg())) {
@@ -242,97 +235,105 @@ public class DGCPTree extends Model {
     }
 
     /**
-     * Recursive function that mines and grows the DGCP-Tree looking for SJEPs
+     * Mines and grows the DGCP-Tree looking for SJEPs.
+     *
+     * The subtree of each child of {@code T} only depends on the path codes of
+     * its right siblings, which are not modified, so the children are mined in
+     * parallel. Each thread takes the next child to mine from a shared counter
+     * so that the work is balanced even if some subtrees are much larger than
+     * others. The SJEPs are added to the model in the same order as if the
+     * children were mined one after another.
      *
      * @param T A subtree of the DGCP- Tree
      * @param minSupport The minimum support threshold. NOTE: The support here
      * is measured by COUNTS, not support.
      * @param prefix A pattern prefix.
+     * @param clase The class of the patterns mined.
      */
-    public void mineGrowingTree(Node T, int minSupport, Pattern prefix) {
-        // for each child node of T
-        for (int i = 0; i < T.getChilds().size(); i++) {
-            Node N = T.getChild(i);
-            Pattern prefixN = prefix.clone();
-            prefixN.add(N.getItem());
-            int suppn = support(prefixN,true);
-            if (N.getPcArrPos().getCounts() >= minSupport) {
-                // Now, for each right sibling of N, S do
-                for (int j = i + 1; j < T.getChilds().size(); j++) {
-                    Node S = T.getChild(j);
-                    Pattern prefixNS = prefixN.clone();
-                    prefixNS.add(S.getItem());
-                    //if S.item not in coverDn(N.item) and N.item not in coverDn(S.item)
-                    if (!coverDn.get(N.getItem()).contains(S.getItem())
-                            && !coverDn.get(S.getItem()).contains(N.getItem())
-                            && support(prefixNS, true) >= minSupport && support(prefixNS, false) < minSupport) {
-                        // The pattern is a possible JEP. Check if it is a JEP
-                        if (support(prefixNS, false) == 0) {
-                            // Is a SJEP !!
-                            this.patterns.add(prefixNS);
-                        } else {
-                            // clone S in S''
-                            Node S_Prime = S.clone();
-                            // modify the path codes by the and operation of BSC-Tree
-                            S_Prime.setPcArrPos(N.getPcArrPos().And(this.pathCodeDp.get(S.getItem())));
-                            S_Prime.setPcArrNeg(N.getPcArrNeg().And(this.pathCodeDn.get(S.getItem())));
-                            // add S' into T as a child node of N. (Obeying the order)
-                            N.addChild(S_Prime);
-                            N.sortChilds(supportRatio);
-                        }
-                    }
-                }
-                // Perfoms the recursive call
-                mineGrowingTree(N, minSupport, prefixN);
+    public void mineGrowingTree(Node T, int minSupport, PatternPrefix prefix, int clase) {
+        int numChilds = T.numChilds();
+        ArrayList<ArrayList<Pattern>> found = new ArrayList<>(Collections.nCopies(numChilds, (ArrayList<Pattern>) null));
+        AtomicInteger next = new AtomicInteger();
+        int threads = Math.min(numChilds, ForkJoinPool.getCommonPoolParallelism() + 1);
+        IntStream.range(0, threads).parallel().forEach(t -> {
+            for (int i = next.getAndIncrement(); i < numChilds; i = next.getAndIncrement()) {
+                ArrayList<Pattern> sjeps = new ArrayList<>();
+                mineChild(T, i, minSupport, prefix, clase, sjeps);
+                found.set(i, sjeps);
             }
-            // Prune subtree N from T
-            N = null;
+        });
+        for (ArrayList<Pattern> sjeps : found) {
+            this.patterns.addAll(sjeps);
         }
     }
 
     /**
-     * Generates a string of length {@code length} to be used to represent the
-     * bit string representation.
+     * Recursive function that mines and grows the DGCP-Tree looking for SJEPs
      *
-     * @param length
-     * @return
+     * @param T A subtree of the DGCP- Tree
+     * @param minSupport The minimum support threshold. NOTE: The support here
+     * is measured by COUNTS, not support.
+     * @param prefix A pattern prefix.
+     * @param clase The class of the patterns mined.
+     * @param sjeps The list where the SJEPs found are added.
      */
-    private String createZeroString(int length) {
-        String result = "";
-        for (int i = 0; i < length; i++) {
-            result += "0";
+    private void mineGrowingTree(Node T, int minSupport, PatternPrefix prefix, int clase, ArrayList<Pattern> sjeps) {
+        // for each child node of T
+        for (int i = 0; i < T.getChilds().size(); i++) {
+            mineChild(T, i, minSupport, prefix, clase, sjeps);
         }
-        return result;
     }
 
     /**
-     * It calculates the support (in COUNTS) of a given pattern by perform the
-     * ANDing between the BSC-Trees of each single item that appears in the
-     * pattern.
+     * Mines and grows the subtree of the {@code i}-th child of {@code T}.
      *
-     * @param X
-     * @param positiveDataset
-     * @return
+     * @param T A subtree of the DGCP- Tree
+     * @param i The position of the child
+     * @param minSupport The minimum support threshold, in COUNTS.
+     * @param prefix A pattern prefix.
+     * @param clase The class of the patterns mined.
+     * @param sjeps The list where the SJEPs found are added.
      */
-    private int support(Pattern X, boolean positiveDataset) {
-        ArrayList<BSCTree> trees = new ArrayList<>();
-        BSCTree first;
-        if (positiveDataset) {
-            first = this.pathCodeDp.get(X.get(0));
-        } else {
-            first = this.pathCodeDn.get(X.get(0));
-        }
-        // Get individual path codes for each item
-        for (int i = 1; i < X.length(); i++) {
-            Item it = X.get(i);
-            if (positiveDataset) {
-                trees.add(this.pathCodeDp.get(it));
-            } else {
-                trees.add(this.pathCodeDn.get(it));
+    private void mineChild(Node T, int i, int minSupport, PatternPrefix prefix, int clase, ArrayList<Pattern> sjeps) {
+        Node N = T.getChild(i);
+        PatternPrefix prefixN = prefix.extend(N.getItem());
+        if (N.getPcArrPos().getCounts() >= minSupport) {
+            // Now, for each right sibling of N, S do
+            for (int j = i + 1; j < T.getChilds().size(); j++) {
+                Node S = T.getChild(j);
+                //if S.item not in coverDn(N.item) and N.item not in coverDn(S.item)
+                if (coverDn.get(N.getItem()).contains(S.getItem())
+                        || coverDn.get(S.getItem()).contains(N.getItem())) {
+                    continue;
+                }
+                // The path codes of N are the ANDing of the items of prefixN,
+                // so the support of prefixNS only needs one more AND.
+                if (N.getPcArrPos().andCounts(this.pathCodeDp.get(S.getItem())) < minSupport) {
+                    continue;
+                }
+                int negativeCounts = N.getPcArrNeg().andCounts(this.pathCodeDn.get(S.getItem()));
+                if (negativeCounts < minSupport) {
+                    // The pattern is a possible JEP. Check if it is a JEP
+                    if (negativeCounts == 0) {
+                        // Is a SJEP !!
+                        sjeps.add(prefixN.extend(S.getItem()).toPattern(clase));
+                    } else {
+                        // clone S in S''
+                        Node S_Prime = S.clone();
+                        // modify the path codes by the and operation of BSC-Tree
+                        S_Prime.setPcArrPos(N.getPcArrPos().And(this.pathCodeDp.get(S.getItem())));
+                        S_Prime.setPcArrNeg(N.getPcArrNeg().And(this.pathCodeDn.get(S.getItem())));
+                        // add S' into T as a child node of N. (Obeying the order)
+                        N.addChild(S_Prime);
+                        N.sortChilds(supportRatio);
+                    }
+                }
             }
+            // Perfoms the recursive call
+            mineGrowingTree(N, minSupport, prefixN, clase, sjeps);
         }
-        // Perfom the tree anding for each item
-        return first.treeANDing(trees);
+        // Prune subtree N from T
+        N = null;
     }
 
 }
@@ -183,16 +183,29 @@ public class CromCAN {
    
     /**
      * <p>
-     * Prints the chromosome genes
+     * Returns the chromosome genes as text
      * </p>
-     * @param nFile         File to write the cromosome
+     * @return              Text with the genes of the chromosome
      */
-    public void Print(String nFile) {
+    @Override
+    public String toString() {
         String contents;
         contents = "Chromosome: ";
         for(int i=0; i<num_genes; i++)
             contents+= cromosoma[i] + " ";
         contents+= "\n";
+        return contents;
+    }
+
+
+    /**
+     * <p>
+     * Prints the chromosome genes
+     * </p>
+     * @param nFile         File to write the cromosome
+     */
+    public void Print(String nFile) {
+        String contents = toString();
         if (nFile=="")
             System.out.print (contents);
         else
@@ -199,11 +199,12 @@ public class CromDNF {
 
     /**
      * <p>
-     * Prints the chromosome genes
+     * Returns the chromosome genes as text
      * </p>
-     * @param nFile         File to write the chromosome
+     * @return              Text with the genes of the chromosome
      */
-    public void Print(String nFile) {
+    @Override
+    public String toString() {
         String contents;
         contents = "Chromosome: \n";
         for(int i=0; i<num_genes; i++){
@@ -214,6 +215,18 @@ public class CromDNF {
             }
             contents+="\n";
         }
+        return contents;
+    }
+
+
+    /**
+     * <p>
+     * Prints the chromosome genes
+     * </p>
+     * @param nFile         File to write the chromosome
+     */
+    public void Print(String nFile) {
+        String contents = toString();
         if (nFile=="")
             System.out.print (contents);
         else
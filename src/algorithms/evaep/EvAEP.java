@@ -22,10 +22,13 @@ import java.io.IOException;
 import java.io.FileNotFoundException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.core.RuleWriter;
 
 public class EvAEP extends Model {
 
@@ -40,6 +43,7 @@ public class EvAEP extends Model {
     private static String rule_file;        // Auxiliary output file for rules
     private static String seg_file;         // Auxiliary output file for tracking
     private static String qmeasure_file;    // Output quality measure file
+    private static boolean parallel_classes;    // Search the rules of the classes in parallel
 
     // Structures
     static InstanceSet Data;
@@ -94,6 +98,9 @@ public class EvAEP extends Model {
         AG.setFitness("MEDGEO");
         AG.setInitialisation("BIASED");
         AG.setRoundRobin(false);
+        parallel_classes = "yes".equals(params.get("Parallel Classes"));
+        AG.setIslands(params.get("Number of Islands") == null ? 1 : Integer.parseInt(params.get("Number of Islands")),
+                params.get("Migration Interval") == null ? 10 : Integer.parseInt(params.get("Migration Interval")));
     }
 
     /**
@@ -146,8 +153,9 @@ public class EvAEP extends Model {
         String nombreF = seg_file;
         Variables.InitSemantics (nombreF);
 
-        // Creates the space for the examples and load the values
-        Examples.Load(Data,Variables);
+        // Creates the space for the examples and load the values. The DNF
+        // individuals also need the belonging degrees of the examples
+        Examples.Load(Data,Variables,AG.getRulesRep().compareTo("DNF")==0);
 
         } catch (Exception e) {
             System.out.println("DBG: Exception in readSet");
@@ -795,6 +803,7 @@ public class EvAEP extends Model {
           String contents;
 
           File.writeFile(rule_file, "");
+          RuleWriter out = new RuleWriter(rule_file, false);
           
           for(int aux=0; aux<nrules; aux++){
             // Write the quality measures of the rule in "measure_file"
@@ -857,9 +866,10 @@ public class EvAEP extends Model {
              }
              
             contents+= "\tConsecuent: " + Attributes.getOutputAttribute(0).getNominalValue(classFinal[aux])+"\n\n";
-            File.AddtoFile(rule_file, contents);
+            out.write(contents);
 
           }
+          out.close();
     }
 
     /**
@@ -870,10 +880,7 @@ public class EvAEP extends Model {
     @Override
     public void learn(InstanceSet training, HashMap<String, String> params){
         
-        String contents;                    // String for the file contents
         String NameRule, NameMeasure;       // String containing de original names for the rules and measures files
-        boolean terminar = false;           // Indicates no more repetition for the rule generation of diferent classes
-        int NumRulesGenerated = 0;          // Number of rules generated
         
         int clase;                          // Store the value of the class to analyse
         
@@ -918,6 +925,7 @@ public class EvAEP extends Model {
         int classFinal[] = new int[100];
         
         long t_ini = System.currentTimeMillis();
+        double hitRate = 0;                 // Hit rate of the fitness cache
         
         if(!AG.getRoundRobin()) {
             //--------------------
@@ -925,97 +933,42 @@ public class EvAEP extends Model {
             //--------------------
             System.out.println("One Vs. All STUDY");
             //Algorithm is executed for all classes
-            for(clase=0; clase< Attributes.getOutputAttribute(0).getNumNominalValues(); clase++){
-                
-                Variables.setNumClassObj(clase);
-                Variables.setNameClassObj(Attributes.getOutputAttribute(0).getNominalValue(clase));
-                System.out.println ("Generate rules for class: "+clase);
-
-                // Set all the examples as not covered
-                for (int ej=0; ej<Examples.getNEx(); ej++)
-                    Examples.setCovered (ej,false);  // Set example to not covered
-
-                // Load the number of examples of the target class
-                Examples.setExamplesClassObj(Variables.getNumClassObj());
-
-                // Variables Initialization
-                Examples.setExamplesCovered(0);
-                Examples.setExamplesCoveredClass(0);
-                terminar = false;
-
-                // Tracking to file and "seg" file
-                System.out.println ("\nTarget class number: " + Variables.getNumClassObj() + " (value " + Variables.getNameClassObj() + ")");
-
-                contents = "\n";
-                contents+= "--------------------------------------------\n";
-                contents+= "|                 Class "+Variables.getNumClassObj()+"                  |\n";
-                contents+= "--------------------------------------------\n\n";
-
-                //File.AddtoFile(seg_file, contents);
-                System.out.println(contents);
-
-                System.out.println("Number of rule: \n");
-
-                //File.AddtoFile(seg_file, "Number of rule: \n");
-
-                boolean rulesClass = false;
-                
-                do {        
-
-                    Individual result = AG.GeneticAlgorithm(Variables,Examples,seg_file);
-                 
-                    if((result.getMeasures().getGRat() < 1) ||
-                        (Examples.getExamplesCoveredClass()==Examples.getExamplesClassObj()) ||
-                        result.getMeasures().getNSup()==0) {
-                            terminar = true;
-                    }
-
-                    if((rulesClass == false) || (terminar==false)){
-                    
-                        System.out.print("#"+NumRulesGenerated+":\n");
-                       // File.AddtoFile(seg_file, "#"+NumRulesGenerated+":\n");
-                       
-                       // Here is where the translation of CAN or DNF rules to Pattern is done              
-                        this.patterns.add(toPattern(result));
-                        
-                       
-                        result.Print("");
-                        result.getMeasures().Print("", AG);
-                        
-                        // Duplicate the size of the result population if neccesary
-                        /*if(NumRulesGenerated==popFinal.getNumIndiv()-1){
-                            Population aux_popFinal = new Population(popFinal.getNumIndiv()*2, Variables.getNVars(), Examples.getNEx(), AG.getRulesRep(), Variables, AG.getTrials());
-                            int[] aux_classFinal = new int[classFinal.length*2];
-                            for(int i=0; i<classFinal.length; i++)
-                                aux_classFinal[i] = classFinal[i];
-                            aux_popFinal.CopyPopulation(popFinal, Examples.getNEx());
-                            popFinal = new Population(popFinal.getNumIndiv()*2, Variables.getNVars(), Examples.getNEx(), AG.getRulesRep(), Variables, AG.getTrials());
-                            popFinal.CopyPopulation(aux_popFinal, Examples.getNEx());
-                            classFinal = new int[aux_classFinal.length];
-                            for(int i=0; i<classFinal.length; i++)
-                                classFinal[i] = aux_classFinal[i];
-                        }
-                        popFinal.CopyIndiv(NumRulesGenerated, Examples.getNEx(), result);
-                        classFinal[NumRulesGenerated] = clase;
-                        */
-                        NumRulesGenerated++; 
-
-                        //Update Examples Structure
-                        for(int j=0; j<Examples.getNEx(); j++){
-                            if(result.getIndivCovered(j)==true){
-                                if(Examples.getCovered(j)==false) {
-                                    Examples.setCovered(j, true);
-                                    Examples.setExamplesCovered(Examples.getExamplesCovered()+1);
-                                if(Examples.getClass(j) == Variables.getNumClassObj())
-                                    Examples.setExamplesCoveredClass(Examples.getExamplesCoveredClass()+1);
-                                }
-                            }
-                        }
+            int nClases = Attributes.getOutputAttribute(0).getNumNominalValues();
+            if (!parallel_classes) {
+                for(clase=0; clase<nClases; clase++){
+                    StringBuilder traza = new StringBuilder();
+                    this.patterns.addAll(learnClass(clase, Variables, Examples, AG, this.patterns.size(), traza));
+                    System.out.print(traza);
+                }
+                hitRate = AG.getCacheHitRate();
+            } else {
+                // Each class searches its rules with its own copy of the
+                // variables, the examples and the genetic algorithm, and draws
+                // its random numbers from its own stream. The trace of each
+                // class is printed after all of them finish, in class order
+                ArrayList<ArrayList<Pattern>> reglas = new ArrayList<>(Collections.nCopies(nClases, null));
+                Genetic[] geneticos = new Genetic[nClases];
+                StringBuilder[] trazas = new StringBuilder[nClases];
+                IntStream.range(0, nClases).parallel().forEach(c -> {
+                    geneticos[c] = new Genetic(AG);
+                    trazas[c] = new StringBuilder();
+                    geneticos[c].setStream((long) c << 32);
+                    MTwister anterior = Randomize.getStream();
+                    Randomize.setStream(Randomize.newStream((long) c << 32));
+                    try {
+                        reglas.set(c, learnClass(c, new TableVar(Variables), new TableDat(Examples), geneticos[c], 0, trazas[c]));
+                    } finally {
+                        Randomize.setStream(anterior);
                     }
-                    
-                    rulesClass = true;
-
-                } while (terminar==false);            
+                });
+                long hits = 0, lookups = 0;
+                for(clase=0; clase<nClases; clase++){
+                    System.out.print(trazas[clase]);
+                    this.patterns.addAll(reglas.get(clase));
+                    hits += geneticos[clase].getCacheHits();
+                    lookups += geneticos[clase].getCacheLookups();
+                }
+                hitRate = lookups == 0 ? 0 : (double) hits / lookups;
             }
         } 
         
@@ -1036,8 +989,119 @@ public class EvAEP extends Model {
         
         
         System.out.println("EXECUTION TIME: " + (t_end - t_ini) / 1000d + " seconds.");
+        if (seg_file != null && !seg_file.isEmpty())
+            Files.addToFile(seg_file, "FITNESS CACHE HIT RATE: " + hitRate + "\n");
   }
 
+    /**
+     * <p>
+     * Generates the rules of a class, repeating the genetic algorithm while
+     * it finds new rules
+     * </p>
+     * @param clase             Number of the class
+     * @param Variables         Variables structure
+     * @param Examples          Examples structure
+     * @param AG                Genetic algorithm
+     * @param primeraRegla      Number of the first rule generated
+     * @param traza             Where the trace of the class is written
+     * @return                  The rules of the class as patterns
+     */
+    private ArrayList<Pattern> learnClass(int clase, TableVar Variables, TableDat Examples, Genetic AG, int primeraRegla, StringBuilder traza) {
+
+        ArrayList<Pattern> patterns = new ArrayList<>();
+
+        Variables.setNumClassObj(clase);
+        Variables.setNameClassObj(Attributes.getOutputAttribute(0).getNominalValue(clase));
+        traza.append("Generate rules for class: "+clase+"\n");
+
+        // Set all the examples as not covered
+        for (int ej=0; ej<Examples.getNEx(); ej++)
+            Examples.setCovered (ej,false);  // Set example to not covered
+
+        // Load the number of examples of the target class
+        Examples.setExamplesClassObj(Variables.getNumClassObj());
+
+        // Variables Initialization
+        Examples.setExamplesCovered(0);
+        Examples.setExamplesCoveredClass(0);
+        boolean terminar = false;           // Indicates no more repetition for the rule generation of diferent classes
+
+        // Tracking to file and "seg" file
+        traza.append("\nTarget class number: " + Variables.getNumClassObj() + " (value " + Variables.getNameClassObj() + ")\n");
+
+        String contents = "\n";
+        contents+= "--------------------------------------------\n";
+        contents+= "|                 Class "+Variables.getNumClassObj()+"                  |\n";
+        contents+= "--------------------------------------------\n\n";
+
+        //File.AddtoFile(seg_file, contents);
+        traza.append(contents+"\n");
+
+        traza.append("Number of rule: \n\n");
+
+        //File.AddtoFile(seg_file, "Number of rule: \n");
+
+        boolean rulesClass = false;
+        
+        do {        
+
+            Individual result = AG.GeneticAlgorithm(Variables,Examples,seg_file);
+         
+            if((result.getMeasures().getGRat() < 1) ||
+                (Examples.getExamplesCoveredClass()==Examples.getExamplesClassObj()) ||
+                result.getMeasures().getNSup()==0) {
+                    terminar = true;
+            }
+
+            if((rulesClass == false) || (terminar==false)){
+            
+                traza.append("#"+(primeraRegla+patterns.size())+":\n");
+               // File.AddtoFile(seg_file, "#"+NumRulesGenerated+":\n");
+               
+               // Here is where the translation of CAN or DNF rules to Pattern is done              
+                patterns.add(toPattern(result, Variables));
+                
+               
+                traza.append(result.toString());
+                traza.append(result.getMeasures().toString());
+                
+                // Duplicate the size of the result population if neccesary
+                /*if(NumRulesGenerated==popFinal.getNumIndiv()-1){
+                    Population aux_popFinal = new Population(popFinal.getNumIndiv()*2, Variables.getNVars(), Examples.getNEx(), AG.getRulesRep(), Variables, AG.getTrials());
+                    int[] aux_classFinal = new int[classFinal.length*2];
+                    for(int i=0; i<classFinal.length; i++)
+                        aux_classFinal[i] = classFinal[i];
+                    aux_popFinal.CopyPopulation(popFinal, Examples.getNEx());
+                    popFinal = new Population(popFinal.getNumIndiv()*2, Variables.getNVars(), Examples.getNEx(), AG.getRulesRep(), Variables, AG.getTrials());
+                    popFinal.CopyPopulation(aux_popFinal, Examples.getNEx());
+                    classFinal = new int[aux_classFinal.length];
+                    for(int i=0; i<classFinal.length; i++)
+                        classFinal[i] = aux_classFinal[i];
+                }
+                popFinal.CopyIndiv(NumRulesGenerated, Examples.getNEx(), result);
+                classFinal[NumRulesGenerated] = clase;
+                */
+
+                //Update Examples Structure
+                for(int j=0; j<Examples.getNEx(); j++){
+                    if(result.getIndivCovered(j)==true){
+                        if(Examples.getCovered(j)==false) {
+                            Examples.setCovered(j, true);
+                            Examples.setExamplesCovered(Examples.getExamplesCovered()+1);
+                        if(Examples.getClass(j) == Variables.getNumClassObj())
+                            Examples.setExamplesCoveredClass(Examples.getExamplesCoveredClass()+1);
+                        }
+                    }
+                }
+            }
+            
+            rulesClass = true;
+
+        } while (terminar==false);
+
+        return patterns;
+    }
+
     
   @Override
   public String[][] predict(InstanceSet test){
@@ -1069,9 +1133,10 @@ public class EvAEP extends Model {
   /**
    * Convert a Rule of class Individual into a Pattern of the framework
    * @param ind
+   * @param Variables
    * @return 
    */
-  public Pattern toPattern(Individual ind){
+  public Pattern toPattern(Individual ind, TableVar Variables){
       ArrayList<Item> items = new ArrayList<>();
       if(AG.getRulesRep().equalsIgnoreCase("CAN")){
           // CAN RULE
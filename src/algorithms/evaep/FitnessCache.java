@@ -0,0 +1,186 @@
+/**
+ * <p>
+ * @author Written by Angel M. Garcia-Vico (University of Jaen)
+ * @version 1.0
+ * @since JDK1.8
+ * </p>
+ */
+
+package algorithms.evaep;
+
+import framework.utils.LongBitSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FitnessCache {
+    /**
+     * <p>
+     * Bounded cache with the quality measures and the covered examples of the
+     * last canonical chromosomes evaluated, so the chromosomes repeated by the
+     * genetic operators are not evaluated again. The least recently used
+     * chromosome is discarded when the cache is full. The results are only
+     * valid for the covered examples and the target class with which they
+     * were computed, so the cache is emptied when any of them changes
+     * </p>
+     */
+
+    private final int size;                // Max number of chromosomes stored
+    private final LRUMap cache;
+    private int version = -1;              // Version of the examples of the stored results
+    private int clase = -1;                // Target class of the stored results
+    private long lookups = 0;              // Number of chromosomes looked up
+    private long hits = 0;                 // Number of chromosomes found
+
+    /**
+     * <p>
+     * Creates a new empty cache
+     * </p>
+     * @param size          Max number of chromosomes stored
+     */
+    public FitnessCache(int size) {
+        this.size = size;
+        this.cache = new LRUMap(size);
+    }
+
+    /**
+     * <p>
+     * Empties the cache if the covered examples or the target class have
+     * changed since the stored results were computed
+     * </p>
+     * @param Variables         Variables structure
+     * @param Examples          Examples structure
+     */
+    public void validate(TableVar Variables, TableDat Examples) {
+        if (version != Examples.getVersion() || clase != Variables.getNumClassObj()) {
+            cache.clear();
+            version = Examples.getVersion();
+            clase = Variables.getNumClassObj();
+        }
+    }
+
+    /**
+     * <p>
+     * Looks up the chromosome of the individual. If it is found, its quality
+     * measures and covered examples are copied in the individual, which is
+     * set as evaluated
+     * </p>
+     * @param ind               Canonical individual
+     * @return                  If the chromosome was found
+     */
+    public boolean get(Individual ind) {
+        lookups++;
+        Result r = cache.get(new Key(ind));
+        if (r == null)
+            return false;
+        hits++;
+        ind.medidas.Copy(r.medidas);
+        ind.cubre.copyFrom(r.cubre);
+        ind.setIndivEvaluated(true);
+        return true;
+    }
+
+    /**
+     * <p>
+     * Stores the results of the evaluated individual
+     * </p>
+     * @param ind               Canonical individual evaluated
+     */
+    public void put(Individual ind) {
+        if (size <= 0)
+            return;
+        Result r = new Result();
+        r.medidas = new QualityMeasures();
+        r.medidas.Copy(ind.getMeasures());
+        r.cubre = new LongBitSet(ind.cubre.size());
+        r.cubre.copyFrom(ind.cubre);
+        cache.put(new Key(ind), r);
+    }
+
+    /**
+     * <p>
+     * Returns the number of chromosomes looked up
+     * </p>
+     * @return                  Number of chromosomes looked up
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * <p>
+     * Returns the number of chromosomes found
+     * </p>
+     * @return                  Number of chromosomes found
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * <p>
+     * Returns the fraction of the chromosomes looked up that were found
+     * </p>
+     * @return                  Hit rate of the cache
+     */
+    public double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Map in access order which discards the least recently used chromosome
+     * when it stores more than a given number of them
+     */
+    private static final class LRUMap extends LinkedHashMap<Key, Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private LRUMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * Genes of a canonical chromosome
+     */
+    private static final class Key {
+
+        private final int[] genes;
+        private final int hash;
+
+        private Key(Individual ind) {
+            genes = new int[ind.tamano];
+            for (int i=0; i<genes.length; i++)
+                genes[i] = ind.getCromElem(i);
+            hash = Arrays.hashCode(genes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(genes, ((Key) o).genes);
+        }
+    }
+
+    /**
+     * Results of the evaluation of a chromosome
+     */
+    private static final class Result {
+
+        private QualityMeasures medidas;
+        private LongBitSet cubre;
+    }
+
+}
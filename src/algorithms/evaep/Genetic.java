@@ -9,6 +9,8 @@ package algorithms.evaep;
 
 import org.core.*;
 import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class Genetic {
 
@@ -37,6 +39,45 @@ public class Genetic {
     private boolean unballanced = true;
     private boolean roundrobin = false;
 
+    private int cacheSize = 1000;       // Number of chromosomes stored in the fitness cache
+    private FitnessCache cache;         // Results of the last chromosomes evaluated
+
+    private int num_islas = 1;          // Number of islands of the island model
+    private int migracion = 10;         // Generations between migrations of the islands
+    private long stream = 0;            // Number of the random stream of the algorithm
+    private Genetic[] islas;            // Genetic algorithms of the islands
+    private MTwister[] generadores;     // Random generators of the islands
+
+    /**
+     * <p>
+     * Creates a new genetic algorithm
+     * </p>
+     */
+    public Genetic() {
+    }
+
+    /**
+     * <p>
+     * Creates a new genetic algorithm with the parameters of the given one
+     * </p>
+     *
+     * @param ag Genetic algorithm to copy the parameters
+     */
+    public Genetic(Genetic ag) {
+        long_poblacion = ag.long_poblacion;
+        n_eval = ag.n_eval;
+        prob_cruce = ag.prob_cruce;
+        prob_mutacion = ag.prob_mutacion;
+        fitness = ag.fitness;
+        RulesRep = ag.RulesRep;
+        Initialisation = ag.Initialisation;
+        unballanced = ag.unballanced;
+        roundrobin = ag.roundrobin;
+        cacheSize = ag.cacheSize;
+        num_islas = ag.num_islas;
+        migracion = ag.migracion;
+    }
+
     /**
      * <p>
      * Sets the lenght of the population
@@ -279,6 +320,116 @@ public class Genetic {
         RulesRep = value;
     }
 
+    /**
+     * <p>
+     * Sets the number of chromosomes stored in the fitness cache. 0 disables
+     * the cache
+     * </p>
+     *
+     * @param value Number of chromosomes
+     */
+    public void setCacheSize(int value) {
+        cacheSize = value;
+        cache = null;
+    }
+
+    /**
+     * <p>
+     * Gets the cache with the results of the last chromosomes evaluated. Only
+     * the canonical individuals are cached, because the evaluation of the DNF
+     * ones also marks the covered examples
+     * </p>
+     *
+     * @return The fitness cache, or null if it is not used
+     */
+    public FitnessCache getCache() {
+        if (cacheSize <= 0 || RulesRep.compareTo("CAN") != 0) {
+            return null;
+        }
+        if (cache == null) {
+            cache = new FitnessCache(cacheSize);
+        }
+        return cache;
+    }
+
+    /**
+     * <p>
+     * Gets the number of evaluations looked up in the fitness cache,
+     * including the ones of the islands
+     * </p>
+     *
+     * @return Number of evaluations looked up
+     */
+    public long getCacheLookups() {
+        long lookups = cache == null ? 0 : cache.getLookups();
+        if (islas != null) {
+            for (Genetic isla : islas) {
+                lookups += isla.getCacheLookups();
+            }
+        }
+        return lookups;
+    }
+
+    /**
+     * <p>
+     * Gets the number of evaluations found in the fitness cache, including
+     * the ones of the islands
+     * </p>
+     *
+     * @return Number of evaluations found
+     */
+    public long getCacheHits() {
+        long hits = cache == null ? 0 : cache.getHits();
+        if (islas != null) {
+            for (Genetic isla : islas) {
+                hits += isla.getCacheHits();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * <p>
+     * Gets the fraction of the evaluations that were found in the fitness
+     * cache
+     * </p>
+     *
+     * @return Hit rate of the cache
+     */
+    public double getCacheHitRate() {
+        long lookups = getCacheLookups();
+        return lookups == 0 ? 0 : (double) getCacheHits() / lookups;
+    }
+
+    /**
+     * <p>
+     * Sets the number of islands of the island model, and the number of
+     * generations between their migrations. With only one island, the
+     * classic genetic algorithm is performed
+     * </p>
+     *
+     * @param number Number of islands
+     * @param interval Generations between migrations
+     */
+    public void setIslands(int number, int interval) {
+        num_islas = Math.max(1, number);
+        migracion = Math.max(1, interval);
+        islas = null;
+    }
+
+    /**
+     * <p>
+     * Sets the number of the random stream of the algorithm. The streams of
+     * the islands are derived from it
+     * </p>
+     *
+     * @param number Number of the stream
+     */
+    public void setStream(long number) {
+        stream = number;
+        islas = null;
+    }
+
     /**
      * <p>
      * Applies the selection schema of the genetic algorithm. k-Tournament
@@ -511,90 +662,247 @@ public class Genetic {
      */
     public Individual GeneticAlgorithm(TableVar Variables, TableDat Examples, String nFile) {
 
-        String contents;
+        if (num_islas > 1) {
+            return IslandAlgorithm(Variables, Examples, nFile);
+        }
+
+        InitPopulation(Variables, Examples, nFile);
+
+        do { // GA General cycle
+
+            Generation(Variables, Examples);
+            
+        } while (Trials <= n_eval);
+
+//        contents = "\tNumber of Generations = " + Gen + "\n";
+//        contents+= "\tNumber of Evaluations = " + Trials + "\n";
+//        File.AddtoFile(nFile, contents);
+        return poblac.getIndiv(best_guy);
+
+    }
+
+    /**
+     * <p>
+     * Creates and evaluates the initial population of the genetic algorithm
+     * </p>
+     *
+     * @param Variables Variables structure
+     * @param Examples Examples structure
+     * @param nFile File to write the process
+     */
+    private void InitPopulation(TableVar Variables, TableDat Examples, String nFile) {
+
         float porcPob = (float) 0.5;  //Percentage of population: biased and random
         float porcVar = (float) 0.8;  //Maximum number of variables in the individuals
-        int best_guy = 0;             //Position of the best guy
-        int[] ten_best_guy;
 
         poblac = new Population(long_poblacion, Variables.getNVars(), Examples.getNEx(), RulesRep, Variables, Trials);
         poblac.BsdInitPob(Variables, Examples, porcVar, porcPob, Examples.getNEx(), nFile);
         Trials = 0;
         Gen = 0;
+        best_guy = 0;
 
         //Evaluates the population
         Trials += poblac.evalPop(this, Variables, Examples);
         //poblac.Print("");
 
-        do { // GA General cycle
+    }
 
-            Gen++;
+    /**
+     * <p>
+     * Performs a generation of the genetic algorithm: the best individual is
+     * kept and the rest are replaced by the offspring, which is evaluated
+     * </p>
+     *
+     * @param Variables Variables structure
+     * @param Examples Examples structure
+     */
+    private void Generation(TableVar Variables, TableDat Examples) {
+
+        Gen++;
     
-            // Initialise auxiliar 
-            auxiliar = new Population(long_poblacion, Variables.getNVars(), Examples.getNEx(), RulesRep, Variables, Trials);
-            // Introduce the best individual of population in auxiliar
+        // Initialise auxiliar 
+        auxiliar = new Population(long_poblacion, Variables.getNVars(), Examples.getNEx(), RulesRep, Variables, Trials);
+        // Introduce the best individual of population in auxiliar
 
-            best_guy = BestIndividual(poblac);
+        best_guy = BestIndividual(poblac);
 //     
-            auxiliar.CopyIndiv(0, Examples.getNEx(), poblac.getIndiv(best_guy));
-
-            for (int conta = 1; conta < long_poblacion / 2; conta++) {
-                
-                int dad = 0;
-                int mum = 0;
-                // Select the daddy and mummy
-                dad = Select();
+        auxiliar.CopyIndiv(0, Examples.getNEx(), poblac.getIndiv(best_guy));
+
+        for (int conta = 1; conta < long_poblacion / 2; conta++) {
+            
+            int dad = 0;
+            int mum = 0;
+            // Select the daddy and mummy
+            dad = Select();
+            mum = Select();
+
+            while (mum == dad) {
                 mum = Select();
+            }
+
+            // Crosses
+            CrossMultipoint(Variables, dad, mum, conta, Examples.getNEx());
+            // Mutates
+            Mutation(Variables, (conta * 2) - 1);
+            Mutation(Variables, (conta * 2));
+        }
+
+        int dad = 0;
+        if (long_poblacion % 2 == 0) {
+            dad = Select();
+            auxiliar.CopyIndiv(long_poblacion - 1, Examples.getNEx(), poblac.getIndiv(dad));
+        }
+
+        //Copy auxiliar population in poblac population
+        poblac.CopyPopulation(auxiliar, Examples.getNEx());
+
+        Trials += poblac.evalPop(this, Variables, Examples);
+
+    }
 
-                while (mum == dad) {
-                    mum = Select();
+    /**
+     * <p>
+     * Island model of the genetic algorithm. The population and the number of
+     * evaluations are split among the islands, which evolve in parallel. Each
+     * "migracion" generations, the best individual of each island replaces the
+     * worst one of the next island. Each island draws its random numbers from
+     * its own stream, so the result does not depend on the threads
+     * </p>
+     *
+     * @param Variables Variables structure
+     * @param Examples Examples structure
+     * @param nFile File to write the process
+     * @return Best individual of all the islands
+     */
+    private Individual IslandAlgorithm(TableVar Variables, TableDat Examples, String nFile) {
+
+        // The islands and their streams are kept for the next rules
+        if (islas == null) {
+            islas = new Genetic[num_islas];
+            generadores = new MTwister[num_islas];
+            for (int i = 0; i < num_islas; i++) {
+                islas[i] = new Genetic(this);
+                islas[i].setIslands(1, migracion);
+                islas[i].setLengthPopulation(Math.max(10, long_poblacion / num_islas));
+                islas[i].setNEval(n_eval / num_islas);
+                generadores[i] = Randomize.newStream(stream | (i + 1));
+            }
+        }
+
+        RunIslands(i -> islas[i].InitPopulation(Variables, Examples, nFile));
+
+        boolean terminado;
+        do {
+            RunIslands(i -> {
+                for (int g = 0; g < migracion && islas[i].Trials <= islas[i].n_eval; g++) {
+                    islas[i].Generation(Variables, Examples);
                 }
+            });
 
-                // Crosses
-                CrossMultipoint(Variables, dad, mum, conta, Examples.getNEx());
-                // Mutates
-                Mutation(Variables, (conta * 2) - 1);
-                Mutation(Variables, (conta * 2));
+            terminado = true;
+            for (Genetic isla : islas) {
+                terminado &= isla.Trials > isla.n_eval;
+            }
+            if (!terminado) {
+                Migration(Examples.getNEx());
             }
+        } while (!terminado);
 
-            int dad = 0;
-            if (long_poblacion % 2 == 0) {
-                dad = Select();
-                auxiliar.CopyIndiv(long_poblacion - 1, Examples.getNEx(), poblac.getIndiv(dad));
+        Individual[] mejores = new Individual[num_islas];
+        Trials = 0;
+        Gen = 0;
+        for (int i = 0; i < num_islas; i++) {
+            mejores[i] = islas[i].poblac.getIndiv(islas[i].best_guy);
+            Trials += islas[i].Trials;
+            Gen = Math.max(Gen, islas[i].Gen);
+        }
+        return mejores[BestIndividual(mejores)];
+
+    }
+
+    /**
+     * <p>
+     * Runs a task for each island with the random stream of the island. The
+     * DNF individuals mark the examples they cover when they are evaluated,
+     * so their islands are run in order
+     * </p>
+     *
+     * @param task Task to run, which receives the number of the island
+     */
+    private void RunIslands(IntConsumer task) {
+
+        IntStream tareas = IntStream.range(0, num_islas);
+        if (RulesRep.compareTo("CAN") == 0) {
+            tareas = tareas.parallel();
+        }
+        tareas.forEach(i -> {
+            MTwister anterior = Randomize.getStream();
+            Randomize.setStream(generadores[i]);
+            try {
+                task.accept(i);
+            } finally {
+                Randomize.setStream(anterior);
             }
+        });
 
-            //Copy auxiliar population in poblac population
-            poblac.CopyPopulation(auxiliar, Examples.getNEx());
+    }
 
-            Trials += poblac.evalPop(this, Variables, Examples);
-         
-            
-        } while (Trials <= n_eval);
+    /**
+     * <p>
+     * Migration of the islands in a ring: the best individual of each island
+     * replaces the worst one of the next island, that is not its best one
+     * </p>
+     *
+     * @param neje Number of examples
+     */
+    private void Migration(int neje) {
 
-//        contents = "\tNumber of Generations = " + Gen + "\n";
-//        contents+= "\tNumber of Evaluations = " + Trials + "\n";
-//        File.AddtoFile(nFile, contents);
-        return poblac.getIndiv(best_guy);
+        int[] emigrantes = new int[num_islas];
+        for (int i = 0; i < num_islas; i++) {
+            emigrantes[i] = BestIndividual(islas[i].poblac);
+        }
+
+        for (int i = 0; i < num_islas; i++) {
+            Genetic destino = islas[(i + 1) % num_islas];
+            int peor = -1;
+            double minimo = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < destino.long_poblacion; j++) {
+                QualityMeasures m = destino.poblac.getIndiv(j).getMeasures();
+                if (j != emigrantes[(i + 1) % num_islas] && m.getNSup() * 0.5 + m.getFitness() * 0.5 < minimo) {
+                    peor = j;
+                    minimo = m.getNSup() * 0.5 + m.getFitness() * 0.5;
+                }
+            }
+            if (peor >= 0) {
+                destino.poblac.CopyIndiv(peor, neje, islas[i].poblac.getIndiv(emigrantes[i]));
+            }
+        }
 
     }
 
     private int BestIndividual(Population p) {
 
+        Individual[] individuos = new Individual[p.getNumIndiv()];
+        for (int i = 0; i < p.getNumIndiv(); i++) {
+            individuos[i] = p.getIndiv(i);
+        }
+        return BestIndividual(individuos);
+    }
+
+    private static int BestIndividual(Individual[] p) {
+
         int best = 0;
-        int pos_best = 0;
         double maximo = Double.NEGATIVE_INFINITY;
-        double pos_maximo = Double.NEGATIVE_INFINITY;
-        boolean centi = false;
 
-        for (int i = 0; i < p.getNumIndiv(); i++) {
+        for (int i = 0; i < p.length; i++) {
 
-            if (p.getIndiv(i).getMeasures().getGRat() > 1) {
-                if (((p.getIndiv(i).getMeasures().getNSup() * 0.5
-                        + p.getIndiv(i).getMeasures().getFitness() * 0.5) >= maximo)
-                        && (p.getIndiv(i).getMeasures().getConf() >= 0.6)) {
+            if (p[i].getMeasures().getGRat() > 1) {
+                if (((p[i].getMeasures().getNSup() * 0.5
+                        + p[i].getMeasures().getFitness() * 0.5) >= maximo)
+                        && (p[i].getMeasures().getConf() >= 0.6)) {
                     best = i;
-                    maximo = (p.getIndiv(i).getMeasures().getNSup() * 0.5
-                            + p.getIndiv(i).getMeasures().getFitness() * 0.5);
+                    maximo = (p[i].getMeasures().getNSup() * 0.5
+                            + p[i].getMeasures().getFitness() * 0.5);
                 }
             }
 
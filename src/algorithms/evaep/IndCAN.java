@@ -8,6 +8,7 @@
  
 package algorithms.evaep;
 
+import framework.utils.LongBitSet;
 import org.core.File;
 import org.core.Randomize;
 
@@ -42,7 +43,7 @@ public class IndCAN extends Individual {
         medidas = new QualityMeasures( );
 
         evaluado = false;
-        cubre = new boolean [neje];
+        cubre = new LongBitSet(neje);
 
         n_eval = trials;
 
@@ -61,9 +62,7 @@ public class IndCAN extends Individual {
     public void RndInitInd(TableVar Variables, float porcVar, int neje, String nFile) {
         cromosoma.RndInitCrom(Variables, porcVar);  // Random initialization method
         evaluado = false;                           // Individual not evaluated
-        for (int i=0; i<neje; i++){
-            cubre[i] = false;
-        }
+        cubre.clear();
 
         n_eval = 0;
     }
@@ -84,9 +83,7 @@ public class IndCAN extends Individual {
   
         evaluado = false;
 
-        for (int i=0; i<Examples.getNEx(); i++){
-            cubre[i] = false;
-        }
+        cubre.clear();
 
         n_eval = 0;
     }
@@ -183,8 +180,7 @@ public class IndCAN extends Individual {
             this.setCromElem(i, a.getCromElem(i));
 
         this.setIndivEvaluated(a.getIndivEvaluated());
-        for (int i=0;i<neje;i++)
-           this.cubre[i] = a.cubre[i];
+        this.cubre.copyFrom(a.cubre);
 
         this.setNEval(a.getNEval());
         
@@ -216,7 +212,6 @@ public class IndCAN extends Individual {
         int ejAntClassCrisp=0;           // Number of compatible examples (antecedent and class) - crisp version
         int ejAntNoClassCrisp=0;         // Number of compatible examples (antecedent and NOT class) - crisp version
         int ejAntClassNewCrisp=0;        // Number of new covered compatible examples (antec and class) - crisp version
-        float disparoCrisp;    // Final compatibility or not of the example with the individual - crisp version
 
         float tp=0;
         float tn=0;
@@ -228,84 +223,39 @@ public class IndCAN extends Individual {
         
         float leng, supM, supm, unus, gain, difs, sens, nsup, conf, medgeo;
 
-        int ejClase[] = new int[Variables.getNClass()];
-        int cubreClase[] = new int[Variables.getNClass()];
-        for (int i=0; i<Variables.getNClass(); i++) {
-            cubreClase[i]=0;
-            ejClase[i] = Examples.getExamplesClass (i);
-        }
-
         int numVarNoInterv=0;  // Number of variables not taking part in the individual
 
-
-        for (int i=0; i<Examples.getNEx(); i++) { // For each example of the dataset
-            // Initialization
-//            disparoFuzzy = 1;
-            disparoCrisp = 1;
-            numVarNoInterv = 0;
-
-            // Compute all chromosome values
-            for (int j=0; j<Variables.getNVars(); j++) {
-                if (!Variables.getContinuous(j)) {  // Discrete Variable
-                    if (cromosoma.getCromElem(j)<=Variables.getMax(j)){
-                        // Variable j takes part in the rule
-                        if ((Examples.getDat(i,j) != cromosoma.getCromElem(j)) && (!Examples.getLost(Variables,i,j))) {
-                            // If chromosome value <> example value, and example value is not a lost value
-//                            disparoFuzzy = 0;    
-                            disparoCrisp = 0;    
-                        }
-                    }
-                    else
-                        numVarNoInterv++;  // Variable does not take part
-                }
-                else {	// Continuous variable
-                    if (cromosoma.getCromElem(j)<Variables.getNLabelVar(j)) {
-                        // Variable takes part in the rule
-                        // Fuzzy computation
-//                        if (!Examples.getLost(Variables,i,j)) {
-//                            // If the value is not a lost value
-//                            float pertenencia = Variables.Fuzzy(j, cromosoma.getCromElem(j), Examples.getDat(i,j));
-//                            disparoFuzzy = Utils.Minimum (disparoFuzzy, pertenencia);
-//                        }
-                        // Crisp computation
-                        if (!Examples.getLost(Variables,i,j))
-                            if (NumInterv (Examples.getDat(i,j),j, Variables)!= cromosoma.getCromElem(j))
-                                disparoCrisp = 0;
-                    }
-                    else
-                        numVarNoInterv++;  // Variable does not take part
-                }
-            } // End FOR all chromosome values
-
-            // Update counters and mark example if needed
-//            gradoAntFuzzy += disparoFuzzy;
-            if (disparoCrisp>0) {
-            	ejAntCrisp++;
-                cubre[i]=true;
-                if (Examples.getClass(i) == Variables.getNumClassObj()) {
-//                    gradoAntClassFuzzy +=disparoFuzzy;
-                    ejAntClassCrisp ++;
-                    tp++;
-                } else {
-                    ejAntNoClassCrisp ++;
-                    fp++;
-                }
-                cubreClase[Examples.getClass(i)]++;
-                if ((!Examples.getCovered(i)) &&  (Examples.getClass(i) == Variables.getNumClassObj())) {
-                    // If example was not previusly covered and belongs to the target class increments the number of covered examples
-                    ejAntClassNewCrisp++;
-//                    gradoAntClassNewEjFuzzy += disparoFuzzy;
-                }
-            } else {
-                cubre[i]=false;
-                if (Examples.getClass(i) == Variables.getNumClassObj()) {
-                    fn++;
-                } else {
-                    tn++;
-                }
+        // The covered examples are the ones compatible with all the
+        // variables taking part in the rule
+        cubre.copyFrom(Examples.getAllExamples());
+        for (int j=0; j<Variables.getNVars(); j++) {
+            if (!Variables.getContinuous(j)) {  // Discrete Variable
+                if (cromosoma.getCromElem(j)<=Variables.getMax(j))
+                    // Variable j takes part in the rule
+                    cubre.and(Examples.getCompatibleExamples(j, cromosoma.getCromElem(j)));
+                else
+                    numVarNoInterv++;  // Variable does not take part
+            }
+            else {	// Continuous variable
+                if (cromosoma.getCromElem(j)<Variables.getNLabelVar(j))
+                    // Variable takes part in the rule
+                    cubre.and(Examples.getCompatibleExamples(j, cromosoma.getCromElem(j)));
+                else
+                    numVarNoInterv++;  // Variable does not take part
             }
-            
-        } // End of cycle for each example
+        } // End FOR all chromosome values
+
+        // Update counters
+        LongBitSet claseObj = Examples.getExamplesOfClass(Variables.getNumClassObj());
+        ejAntCrisp = cubre.cardinality();
+        ejAntClassCrisp = cubre.andCardinality(claseObj);
+        ejAntNoClassCrisp = ejAntCrisp - ejAntClassCrisp;
+        // Examples of the target class not previously covered
+        ejAntClassNewCrisp = ejAntClassCrisp - cubre.andCardinality(claseObj, Examples.getCoveredExamples());
+        tp = ejAntClassCrisp;
+        fp = ejAntNoClassCrisp;
+        fn = Examples.getExamplesClass(Variables.getNumClassObj()) - ejAntClassCrisp;
+        tn = Examples.getNEx() - Examples.getExamplesClass(Variables.getNumClassObj()) - ejAntNoClassCrisp;
 
 
         // Compute the measures
@@ -477,7 +427,8 @@ public class IndCAN extends Individual {
             if (!Variables.getContinuous(j)) {  // Discrete Variable
                 if (cromosoma.getCromElem(j)<=Variables.getMax(j)){
                     // Variable j takes part in the rule
-                    if ((Examples.getDat(eje,j) != cromosoma.getCromElem(j)) && (!Examples.getLost(Variables,eje,j))) {
+                    int value = Examples.getInterv(eje,j);
+                    if ((value != cromosoma.getCromElem(j)) && (value != TableDat.LOST)) {
                         // If chromosome value <> example value, and example value is not a lost value
                         disparo = 0;    
                     }
@@ -486,8 +437,9 @@ public class IndCAN extends Individual {
                 if (cromosoma.getCromElem(j)<Variables.getNLabelVar(j)) {
                     // Variable takes part in the rule
                     // Crisp computation
-                    if (!Examples.getLost(Variables,eje,j)) {
-                        if (NumInterv (Examples.getDat(eje,j),j, Variables)!= cromosoma.getCromElem(j))
+                    int interv = Examples.getInterv(eje,j);
+                    if (interv != TableDat.LOST) {
+                        if (interv != cromosoma.getCromElem(j))
                             disparo = 0;
                     }
                     // Fuzzy computation
@@ -507,18 +459,30 @@ public class IndCAN extends Individual {
     
     /**
      * <p>
-     * Method to Print the contents of the individual
+     * Returns the contents of the individual as text
      * </p>
-     * @param nFile             File to write the individual
+     * @return                  Text with the contents of the individual
      */
-    public void Print(String nFile) {
+    @Override
+    public String toString() {
         String contents;
-        cromosoma.Print(nFile);
-
-        contents = "Evaluated - " + evaluado + "\n";
+        contents = cromosoma.toString();
+        contents+= "Evaluated - " + evaluado + "\n";
         contents+= "Evaluation generated " + n_eval + "\n";
         contents+= "Fitness: " + getMeasures().getFitness() +"\n";
         contents+= "Growth Rate: " + getMeasures().getGRat() +"\n";
+        return contents;
+    }
+
+
+    /**
+     * <p>
+     * Method to Print the contents of the individual
+     * </p>
+     * @param nFile             File to write the individual
+     */
+    public void Print(String nFile) {
+        String contents = toString();
         if (nFile=="")
             System.out.print (contents);
         else
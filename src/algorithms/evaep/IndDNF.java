@@ -8,6 +8,7 @@
 
 package algorithms.evaep;
 
+import framework.utils.LongBitSet;
 import org.core.File;
 import keel.Dataset.*;
 
@@ -39,7 +40,7 @@ public class IndDNF extends Individual {
           cromosoma = new CromDNF(lenght, Variables);
 
           evaluado = false;
-          cubre = new boolean [neje];
+          cubre = new LongBitSet(neje);
 
           n_eval = trials;
 
@@ -57,9 +58,7 @@ public class IndDNF extends Individual {
     public void RndInitInd(TableVar Variables, float porcVar, int neje, String nFile) {
         cromosoma.RndInitCrom(Variables, porcVar);        // Random initialization method
         evaluado = false;               // Individual not evaluated
-        for (int i=0; i<neje; i++){
-            cubre[i] = false;
-        }
+        cubre.clear();
 
         n_eval = 0;
     }
@@ -78,9 +77,7 @@ public class IndDNF extends Individual {
         cromosoma.BsdInitCrom(Variables, Examples, porcVar);
         evaluado = false;
 
-        for (int i=0; i<Examples.getNEx(); i++){
-            cubre[i] = false;
-        }
+        cubre.clear();
 
         n_eval = 0;
     }
@@ -179,8 +176,7 @@ public class IndDNF extends Individual {
            }
         }
         this.setIndivEvaluated(a.getIndivEvaluated());
-        for (int i=0;i<neje;i++)
-           this.cubre[i] = a.cubre[i];
+        this.cubre.copyFrom(a.cubre);
         this.setNEval(a.getNEval());
 
         this.medidas.Copy(a.getMeasures());
@@ -230,49 +226,53 @@ public class IndDNF extends Individual {
 
         int numVarNoInterv=0;  // Number of variables not taking part in the individual
 
+        // Examples compatible with the discrete variables taking part in the
+        // rule, and with all of them. A variable is compatible with the
+        // examples of any of the values of its gene
+        LongBitSet compDiscretas = new LongBitSet(Examples.getNEx());
+        LongBitSet compCrisp = new LongBitSet(Examples.getNEx());
+        LongBitSet compVar = new LongBitSet(Examples.getNEx());
+        compDiscretas.copyFrom(Examples.getAllExamples());
+        compCrisp.copyFrom(Examples.getAllExamples());
+        for (int j=0; j<Variables.getNVars(); j++) {
+            if (cromosoma.getCromGeneElem(j,Variables.getNLabelVar(j))==true){
+                // Variable j takes part in the rule
+                compVar.copyFrom(Examples.getLostExamples(j));
+                for (int k=0; k<Variables.getNLabelVar(j); k++) {
+                    if (cromosoma.getCromGeneElem(j,k)==true)
+                        compVar.or(Examples.getCompatibleExamples(j,k));
+                }
+                if (!Variables.getContinuous(j))
+                    compDiscretas.and(compVar);
+                compCrisp.and(compVar);
+            }
+            else
+                numVarNoInterv++;  // Variable does not take part
+        }
+
         for (int i=0; i<Examples.getNEx(); i++) { // For each example of the dataset
             // Initialisation
-            disparoFuzzy = 1;
-            disparoCrisp = 1;
-            numVarNoInterv = 0;
+            disparoFuzzy = compDiscretas.get(i) ? 1 : 0;
+            disparoCrisp = compCrisp.get(i) ? 1 : 0;
 
-            // Compute all chromosome values
-            for (int j=0; j<Variables.getNVars(); j++) {
-                if (!Variables.getContinuous(j)) {  // Discrete Variable
-                    if (cromosoma.getCromGeneElem(j,Variables.getNLabelVar(j))==true){
-                        // Variable j does not take part in the rule
-                        if ((cromosoma.getCromGeneElem(j,(int)Examples.getDat(i,j))==false)&&(!Examples.getLost(Variables,i,j))) {
-                            disparoFuzzy = 0;
-                            disparoCrisp = 0;
-                        }
-                    }
-                    else
-                        numVarNoInterv++;
-                }
-                else {	// Continuous variable
+            // Compute the fuzzy degree of the continuous variables
+            for (int j=0; j<Variables.getNVars() && disparoFuzzy>0; j++) {
+                if (Variables.getContinuous(j)) {	// Continuous variable
                     if (cromosoma.getCromGeneElem(j,Variables.getNLabelVar(j))==true){
                         // Variable takes part in the rule
                         // Fuzzy computation
-                        if (!Examples.getLost(Variables,i,j)) {
+                        if (Examples.getInterv(i,j) != TableDat.LOST) {
                             float pertenencia = 0;
                             float pert;
                             for (int k=0; k<Variables.getNLabelVar(j); k++) {
                                 if (cromosoma.getCromGeneElem(j,k)==true)
-                                    pert = Variables.Fuzzy (j, k, Examples.getDat(i,j));
+                                    pert = Examples.getFuzzy (i, j, k);
                                 else pert = 0;
                                 pertenencia = Utils.Maximum (pertenencia, pert);
                             }
                             disparoFuzzy = Utils.Minimum (disparoFuzzy, pertenencia);
                         }
-                        // Crisp computation
-                        if (!Examples.getLost(Variables,i,j)){
-                            if (cromosoma.getCromGeneElem(j,NumInterv (Examples.getDat(i,j),j, Variables))==false)
-                                disparoCrisp = 0;
-                            // If chromosome value <> example value, and example value != lost value (lost value are COMPATIBLES */
-                        }
                     }
-                    else
-                        numVarNoInterv++;  // Variable does not take part
                 }
             } // End FOR all chromosome values
 
@@ -287,7 +287,7 @@ public class IndDNF extends Individual {
                 if ((!Examples.getCovered(i)) &&  (Examples.getClass(i) == Variables.getNumClassObj())) {
                     ejCompAntClassNewFuzzy++;
                     gradoCompAntClassNewEjFuzzy += disparoFuzzy;
-                    cubre[i]=true;
+                    cubre.set(i);
                     Examples.setCovered(i, true);
                 }
                 //Calculate the AUC of the rule
@@ -303,7 +303,7 @@ public class IndDNF extends Individual {
                 cubreClase[Examples.getClass(i)]++;
                 if ((!Examples.getCovered(i)) &&  (Examples.getClass(i) == Variables.getNumClassObj())) {
                     ejCompAntClassNewCrisp++;
-                    cubre[i]=true;
+                    cubre.set(i);
                     Examples.setCovered(i, true);
                 }
             }
@@ -462,6 +462,22 @@ public class IndDNF extends Individual {
     }
     
     
+    /**
+     * <p>
+     * Returns the contents of the individual as text
+     * </p>
+     * @return                  Text with the contents of the individual
+     */
+    @Override
+    public String toString() {
+        String contents;
+        contents = cromosoma.toString();
+        contents+= "Evaluated - " + evaluado + "\n";
+        contents+= "Evaluaci?n Generado " + n_eval + "\n\n";
+        return contents;
+    }
+
+
     /**
      * <p>
      * Method to Print the contents of the individual
@@ -469,11 +485,7 @@ public class IndDNF extends Individual {
      * @param nFile             File to write the individual
      */
     public void Print(String nFile) {
-        String contents;
-        cromosoma.Print(nFile);
-
-        contents = "Evaluated - " + evaluado + "\n";
-        contents+= "Evaluaci?n Generado " + n_eval + "\n\n";
+        String contents = toString();
         if (nFile=="")
             System.out.print (contents);
         else
@@ -8,11 +8,13 @@
 
 package algorithms.evaep;
 
+import framework.utils.LongBitSet;
+
 public abstract class Individual {
 
       public int tamano;      
       public boolean evaluado;
-      public boolean cubre[]; 
+      public LongBitSet cubre; 
       
       public float cubr;
       public int n_eval;             
@@ -31,13 +33,13 @@ public abstract class Individual {
 
     /**
      * <p>
-     * Returns the position i of the array cubre
+     * Returns the position i of the set cubre
      * </p>
      * @param pos               Position of example
      * @return                  Value of the example
      */
     public boolean getIndivCovered (int pos) {
-        return cubre[pos];
+        return cubre.get(pos);
     }
     
     /**
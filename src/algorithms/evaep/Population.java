@@ -9,6 +9,8 @@
 package algorithms.evaep;
 
 import java.util.Vector;
+import framework.utils.LongBitSet;
+import java.util.stream.IntStream;
 import org.core.Randomize;
 
 public class Population {
@@ -20,7 +22,7 @@ public class Population {
 
       private Individual indivi [];     // Population individuals
       private int num_indiv;           // Max number of individuals in the population
-      public boolean ej_cubiertos[];   // Covered examples of the population
+      public LongBitSet ej_cubiertos;   // Covered examples of the population
 
       /**
        * <p>
@@ -52,9 +54,7 @@ public class Population {
                 indivi[i] = new IndDNF(numgen, neje, Variables, trials);
               }
           }
-          ej_cubiertos = new boolean[neje];
-          for(int i=0; i<neje; i++)
-            ej_cubiertos[i] = false;          
+          ej_cubiertos = new LongBitSet(neje);
       }
 
       
@@ -82,8 +82,7 @@ public class Population {
               indivi[j].RndInitInd(Variables, porcVar, neje, nFile);
           }
 
-          for(i=0; i<neje; i++)
-            ej_cubiertos[i] = false;
+          ej_cubiertos.clear();
           
           
       }
@@ -101,20 +100,51 @@ public class Population {
       public int evalPop (Genetic AG, TableVar Variables, TableDat Examples) {
 
           int trials = 0;
+          int pending[] = new int[AG.getLengthPopulation()];
 
+          // Number the non-evaluated individuals in the population order
           for (int i=0; i<AG.getLengthPopulation(); i++) {
               if (!getIndivEvaluated(i)) {     // Not evaluated
-                  indivi[i].evalInd (AG, Variables, Examples);
-                  setIndivEvaluated(i,true);   /* Now it is evaluated */
                   indivi[i].setNEval(AG.getTrials()+trials);
+                  pending[trials] = i;
                   trials++;
               }
-              for (int j=0; j<Examples.getNEx(); j++){
-                  if(indivi[i].getIndivCovered(j)==true){
-                      ej_cubiertos[j]=true;
-                  }
+          }
+
+          // The chromosomes evaluated before take their results from the
+          // cache, and only the rest are kept in "pending". They still count
+          // as evaluations of the genetic algorithm
+          int nuevos = trials;
+          FitnessCache cache = AG.getCache();
+          if (cache != null) {
+              cache.validate(Variables, Examples);
+              nuevos = 0;
+              for (int k=0; k<trials; k++) {
+                  if (!cache.get(indivi[pending[k]]))
+                      pending[nuevos++] = pending[k];
               }
           }
+
+          // Each evaluation of a CAN individual only reads the variables and
+          // examples and writes in its own individual, so they are performed
+          // in parallel. The DNF individuals mark the examples they cover
+          // while they are evaluated, so they are evaluated in order
+          IntStream evaluations = IntStream.range(0, nuevos);
+          if (AG.getRulesRep().compareTo("CAN")==0)
+              evaluations = evaluations.parallel();
+          evaluations.forEach(k -> {
+              indivi[pending[k]].evalInd (AG, Variables, Examples);
+              setIndivEvaluated(pending[k],true);   /* Now it is evaluated */
+          });
+
+          if (cache != null) {
+              for (int k=0; k<nuevos; k++)
+                  cache.put(indivi[pending[k]]);
+          }
+
+          for (int i=0; i<AG.getLengthPopulation(); i++) {
+              ej_cubiertos.or(indivi[i].cubre);
+          }
           //Update examples covered in the population
                   
           return trials;
@@ -163,12 +193,10 @@ public class Population {
           
           //private Individual indivi [];     // Population individuals
           //private int num_indiv;           // Max number of individuals in the population
-          //public boolean ej_cubiertos[];   // Covered examples of the population
+          //public LongBitSet ej_cubiertos;   // Covered examples of the population
           
           this.setNumIndiv(poblacion.getNumIndiv());
-          for(int i=0; i<neje; i++){
-              this.ej_cubiertos[i] = poblacion.ej_cubiertos[i];
-          }
+          this.ej_cubiertos.copyFrom(poblacion.ej_cubiertos);
           for(int i=0; i<getNumIndiv(); i++){
               indivi[i].copyIndiv(poblacion.getIndiv(i), neje);
           }
@@ -315,12 +315,12 @@ public class QualityMeasures {
 
     /**
      * <p>
-     * Prints the measures
+     * Returns the measures as text
      * </p>
-     * @param nFile             File to write the quality measures
-     * @param AG                Genetic algorithm
+     * @return                  Text with the quality measures
      */
-    public void Print(String nFile, Genetic AG) {
+    @Override
+    public String toString() {
         String contents;
         contents = "\tLength: "+this.getLength()+"\n"
                 + "\tUnus: "+this.getUnus()+"\n"
@@ -332,6 +332,19 @@ public class QualityMeasures {
                 + "\tMedGeo: "+this.getMedGeo()+"\n"
                 + "\tConf: "+this.getConf();       
         contents += "\n";
+        return contents;
+    }
+
+
+    /**
+     * <p>
+     * Prints the measures
+     * </p>
+     * @param nFile             File to write the quality measures
+     * @param AG                Genetic algorithm
+     */
+    public void Print(String nFile, Genetic AG) {
+        String contents = toString();
         if (nFile=="")
             System.out.print (contents);
         else
@@ -8,6 +8,7 @@
 
 package algorithms.evaep;
 
+import framework.utils.LongBitSet;
 import keel.Dataset.*;
 
 
@@ -24,6 +25,19 @@ public class TableDat {
     private int ej_clase_obj;	    // Number of examples of the target class
     private int total_ej_cubiertos;         // Total covered examples
     private int total_ej_cubiertos_clase;   // Total covered examples for class
+    private int[][] interv;         // Value of the discrete variables and interval of the continuous ones for each example
+    private float[][][] pertenencia;        // Belonging degree of the continuous variables to each label for each example
+    private LongBitSet[][] compatibles;     // Examples compatible with each value or interval of each variable
+    private LongBitSet[] perdidos;  // Examples with a lost value in each variable
+    private LongBitSet[] ejemplosClase;     // Examples of each class
+    private LongBitSet cubiertos;    // Covered examples
+    private LongBitSet todos;       // All the examples
+    private int version;            // Number of changes of the covered examples or the target class
+
+    /**
+     * Value stored in the interval matrix for the lost values
+     */
+    public static final int LOST = -2;
 
     /**
      * <p>
@@ -56,6 +70,7 @@ public class TableDat {
      * @return              Number of examples of the class
      **/
     public int setExamplesClassObj (int clas) {
+        version++;
         ej_clase_obj = EjClase[clas];
         return ej_clase_obj;
     }
@@ -110,6 +125,21 @@ public class TableDat {
      * @param Variables     Variables structure of the dataset
      */
     public void Load(InstanceSet Data, TableVar Variables) {
+        Load(Data, Variables, false);
+    }
+
+
+    /**
+     * <p>
+     * Creates and fill TableDat with the examples of the dataset, and computes
+     * the interval of the values of each example. The fuzzy sets of the
+     * continuous variables must be already initialised
+     * </p>
+     * @param Data          Data structure of the dataset
+     * @param Variables     Variables structure of the dataset
+     * @param fuzzy         If the belonging degrees to the labels are also stored
+     */
+    public void Load(InstanceSet Data, TableVar Variables, boolean fuzzy) {
         int num_vars = Variables.getNVars();       // Set the number of variables of the dataset
         n_eje = Data.getNumInstances();            // Set Sthe number of examples (instances) of the dataset
         EjClase = new int[Variables.getNClass()];  // Creates space to store the number of examples of each class
@@ -149,6 +179,54 @@ public class TableDat {
             EjClase[(int)classValue[0]]++;
         }
 
+        // The interval of each value never changes, so it is computed only once
+        interv = new int[n_eje][num_vars];
+        pertenencia = fuzzy ? new float[n_eje][num_vars][] : null;
+        for (int i=0; i<n_eje; i++) {
+            for (int j=0; j<num_vars; j++) {
+                if (getLost(Variables, i, j))
+                    interv[i][j] = LOST;
+                else if (!Variables.getContinuous(j))
+                    interv[i][j] = (int) dat[i].getDat(j);
+                else
+                    interv[i][j] = NumInterv(dat[i].getDat(j), j, Variables);
+                if (fuzzy && Variables.getContinuous(j)) {
+                    pertenencia[i][j] = new float[Variables.getNLabelVar(j)];
+                    for (int k=0; k<Variables.getNLabelVar(j); k++)
+                        pertenencia[i][j][k] = Variables.Fuzzy(j, k, dat[i].getDat(j));
+                }
+            }
+        }
+
+        // Vertical representation of the examples, so the individuals are
+        // evaluated by intersecting the examples compatible with each gene.
+        // A lost value is compatible with all the values of its variable
+        compatibles = new LongBitSet[num_vars][];
+        perdidos = new LongBitSet[num_vars];
+        for (int j=0; j<num_vars; j++) {
+            compatibles[j] = new LongBitSet[Variables.getNLabelVar(j)];
+            for (int k=0; k<Variables.getNLabelVar(j); k++)
+                compatibles[j][k] = new LongBitSet(n_eje);
+            perdidos[j] = new LongBitSet(n_eje);
+            for (int i=0; i<n_eje; i++) {
+                if (interv[i][j] == LOST) {
+                    perdidos[j].set(i);
+                    for (int k=0; k<Variables.getNLabelVar(j); k++)
+                        compatibles[j][k].set(i);
+                } else if (interv[i][j] >= 0 && interv[i][j] < Variables.getNLabelVar(j))
+                    compatibles[j][interv[i][j]].set(i);
+            }
+        }
+        ejemplosClase = new LongBitSet[Variables.getNClass()];
+        for (int c=0; c<Variables.getNClass(); c++)
+            ejemplosClase[c] = new LongBitSet(n_eje);
+        for (int i=0; i<n_eje; i++)
+            ejemplosClase[dat[i].getClas()].set(i);
+        cubiertos = new LongBitSet(n_eje);
+        todos = new LongBitSet(n_eje);
+        for (int i=0; i<n_eje; i++)
+            todos.set(i);
+
         for (int i=0; i<Variables.getNClass(); i++)
             System.out.println ("Class " + i + ": " + EjClase[i] + " examples");
         System.out.println ("Total examples: " + n_eje);
@@ -174,7 +252,10 @@ public class TableDat {
      * @param val       Value of the class
      */
     public void setClass (int pos, int val) {
+        version++;
+        ejemplosClase[dat[pos].getClas()].clear(pos);
         dat[pos].setClas(val);
+        ejemplosClase[val].set(pos);
     }
 
 
@@ -186,7 +267,7 @@ public class TableDat {
      * @return          State of the example
      */
     public boolean getCovered (int pos) {
-        return dat[pos].getCovered();
+        return cubiertos.get(pos);
     }
 
     /**
@@ -197,7 +278,70 @@ public class TableDat {
      * @param val       Value of the state of the example
      */
     public void setCovered (int pos, boolean val) {
-        dat[pos].setCovered(val);
+        if (cubiertos.get(pos) != val)
+            version++;
+        if (val)
+            cubiertos.set(pos);
+        else
+            cubiertos.clear(pos);
+    }
+
+
+    /**
+     * <p>
+     * Returns the examples compatible with the value or interval "value" of
+     * the variable "pos", including the ones with a lost value. The set must
+     * not be modified
+     * </p>
+     * @param pos       Position of the variable
+     * @param value     Value of the variable
+     * @return          Set of compatible examples
+     */
+    public LongBitSet getCompatibleExamples (int pos, int value) {
+        return compatibles[pos][value];
+    }
+
+    /**
+     * <p>
+     * Returns the examples with a lost value in the variable "pos". The set
+     * must not be modified
+     * </p>
+     * @param pos       Position of the variable
+     * @return          Set of examples with a lost value
+     */
+    public LongBitSet getLostExamples (int pos) {
+        return perdidos[pos];
+    }
+
+    /**
+     * <p>
+     * Returns the examples of the class specified. The set must not be modified
+     * </p>
+     * @param clas      A value of the target variable
+     * @return          Set of examples of the class
+     */
+    public LongBitSet getExamplesOfClass (int clas) {
+        return ejemplosClase[clas];
+    }
+
+    /**
+     * <p>
+     * Returns the examples yet covered. The set must not be modified
+     * </p>
+     * @return          Set of covered examples
+     */
+    public LongBitSet getCoveredExamples () {
+        return cubiertos;
+    }
+
+    /**
+     * <p>
+     * Returns all the examples of the dataset. The set must not be modified
+     * </p>
+     * @return          Set of all the examples
+     */
+    public LongBitSet getAllExamples () {
+        return todos;
     }
 
 
@@ -239,10 +383,25 @@ public class TableDat {
      * @param val       Number of examples covered for class
      */
     public void setExamplesCoveredClass (int val) {
+        if (total_ej_cubiertos_clase != val)
+            version++;
         total_ej_cubiertos_clase = val;
     }
 
 
+    /**
+     * <p>
+     * Returns the number of changes of the covered examples or the classes of
+     * the examples. The evaluation of an individual only remains valid while
+     * it does not change
+     * </p>
+     * @return          Version of the examples
+     */
+    public int getVersion ( ) {
+        return version;
+    }
+
+
     /**
      * <p>
      * Get the value of the variable "pos" of the example "numEj"
@@ -255,6 +414,62 @@ public class TableDat {
     }
 
 
+    /**
+     * <p>
+     * Get the value of the discrete variable "pos" of the example "numEj", or
+     * its interval if the variable is continuous. The interval is -1 if the
+     * value does not belong to any label, and LOST if it is a lost value
+     * </p>
+     * @param numEj     Position of the example
+     * @param pos       Position of the variable
+     */
+    public int getInterv (int numEj, int pos) {
+        return interv[numEj][pos];
+    }
+
+
+    /**
+     * <p>
+     * Get the belonging degree of the continuous variable "pos" of the
+     * example "numEj" to the label "label". Only available if the examples
+     * were loaded with the fuzzy degrees
+     * </p>
+     * @param numEj     Position of the example
+     * @param pos       Position of the variable
+     * @param label     Position of the label
+     */
+    public float getFuzzy (int numEj, int pos, int label) {
+        return pertenencia[numEj][pos][label];
+    }
+
+
+    /**
+     * <p>
+     * Returns the number of the interval of the indicated variable to which belongs
+     * the value. It is performed seeking the greater belonging degree of the
+     * value to the fuzzy sets defined for the variable
+     * </p>
+     * @param value                 Value to calculate
+     * @param num_var               Number of the variable
+     * @param Variables             Variables structure
+     * @return                      Number of the interval
+     */
+    private static int NumInterv (float value, int num_var, TableVar Variables) {
+        float pertenencia=0, new_pert=0;
+        int interv = -1;
+
+        for (int i=0; i<Variables.getNLabelVar(num_var); i++) {
+            new_pert = Variables.Fuzzy(num_var, i, value);
+            if (new_pert>pertenencia) {
+                interv = i;
+                pertenencia = new_pert;
+            }
+        }
+        return interv;
+
+    }
+
+
     /**
      * <p>
      * Creates a new instance of TableDat
@@ -263,4 +478,31 @@ public class TableDat {
     public TableDat() {
     }
 
+    /**
+     * <p>
+     * Creates a copy of a TableDat with its own covered examples and target
+     * class, so it can be used to search the rules of a class while the
+     * original is used for another class. The examples are shared with the
+     * original
+     * </p>
+     * @param other         TableDat to copy
+     */
+    public TableDat(TableDat other) {
+        n_eje = other.n_eje;
+        dat = other.dat;
+        EjClase = other.EjClase;
+        ej_clase_obj = other.ej_clase_obj;
+        total_ej_cubiertos = other.total_ej_cubiertos;
+        total_ej_cubiertos_clase = other.total_ej_cubiertos_clase;
+        interv = other.interv;
+        pertenencia = other.pertenencia;
+        compatibles = other.compatibles;
+        perdidos = other.perdidos;
+        ejemplosClase = other.ejemplosClase;
+        cubiertos = new LongBitSet(n_eje);
+        cubiertos.copyFrom(other.cubiertos);
+        todos = other.todos;
+        version = other.version;
+    }
+
 }
@@ -582,4 +582,25 @@ public class TableVar {
     public TableVar() {
     }
 
+    /**
+     * <p>
+     * Creates a copy of a TableVar with its own target class. The definitions
+     * of the variables and their fuzzy sets are shared with the original
+     * </p>
+     * @param other         TableVar to copy
+     */
+    public TableVar(TableVar other) {
+        num_vars = other.num_vars;
+        n_etiq = other.n_etiq;
+        MaxEtiquetas = other.MaxEtiquetas;
+        MaxValores = other.MaxValores;
+        n_clases = other.n_clases;
+        clase_obj = other.clase_obj;
+        nclase_obj = other.nclase_obj;
+        var = other.var;
+        BaseDatos = other.BaseDatos;
+        GI = other.GI;
+        intervalosGI = other.intervalosGI;
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 angel.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package algorithms.iepminer;
+
+import framework.items.Item;
+import framework.items.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * The header table of a P-Tree. Each distinct item gets an id, which is its
+ * position in the lexicographical order of the items, and the entries of the
+ * table are stored in an array indexed by that id. This way, the entry of an
+ * item is reached in constant time, and each tree owns its own table.
+ *
+ * @author Ángel M. García Vico <agvico@ujaen.es>
+ * @version 1.0
+ * @since JDK 1.8
+ */
+public class HeaderTable {
+
+    /**
+     * The entries of the table, indexed by item id.
+     */
+    private final HeaderTableEntry[] entries;
+
+    /**
+     * The id of each item.
+     */
+    private final HashMap<Item, Integer> ids;
+
+    /**
+     * Builds the header table for the given items, with all counts set to 0
+     * and no node-links.
+     *
+     * @param items The items that can appear in the tree. Duplicates are
+     * ignored.
+     */
+    public HeaderTable(Collection<? extends Item> items) {
+        ArrayList<Item> sorted = new ArrayList<>(new TreeSet<>(items));
+        entries = new HeaderTableEntry[sorted.size()];
+        ids = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            entries[i] = new HeaderTableEntry(sorted.get(i), null);
+            ids.put(sorted.get(i), i);
+        }
+    }
+
+    /**
+     * Builds an empty table with the same items and ids than the given one.
+     * The ids are shared, as they are never modified once built.
+     *
+     * @param other The table to copy
+     */
+    private HeaderTable(HeaderTable other) {
+        entries = new HeaderTableEntry[other.entries.length];
+        ids = other.ids;
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new HeaderTableEntry(other.entries[i].item, null);
+        }
+    }
+
+    /**
+     * Returns a table with the same items and ids than this one, but with all
+     * counts set to 0 and no node-links. It is used by projected trees, so
+     * their nodes can be encoded with the same ids than the original tree.
+     *
+     * @return The empty table
+     */
+    public HeaderTable emptyCopy() {
+        return new HeaderTable(this);
+    }
+
+    /**
+     * @return the number of entries of the table
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the entry of the item with the given id
+     *
+     * @param id The id of the item
+     * @return
+     */
+    public HeaderTableEntry get(int id) {
+        return entries[id];
+    }
+
+    /**
+     * Returns the id of the given item
+     *
+     * @param item The item
+     * @return The id of the item, or -1 if the item is not in the table
+     */
+    public int getId(Item item) {
+        Integer id = ids.get(item);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Encodes the given pattern as the ids of its items, sorted in ascending
+     * order, i.e., in the order they are inserted in the tree.
+     *
+     * @param pat The pattern
+     * @return The ids of the items of the pattern
+     */
+    public int[] encode(Pattern pat) {
+        int[] transaction = new int[pat.length()];
+        for (int i = 0; i < transaction.length; i++) {
+            transaction[i] = ids.get(pat.get(i));
+        }
+        Arrays.sort(transaction);
+        return transaction;
+    }
+
+    /**
+     * Sets the entries from {@code startIndex +1 } untill the end of the
+     * header table with counts equal to 0 and null node-links
+     *
+     * @param startIndex
+     */
+    public void cleanLinks(int startIndex) {
+        for (int i = startIndex + 1; i < entries.length; i++) {
+            // remove all node links for this item
+            PTree aux = entries[i].headNodeLink;
+            while (aux != null) {
+                PTree aux2 = aux.node_link;
+                aux.node_link = null;
+                aux = aux2;
+            }
+            entries[i] = new HeaderTableEntry(entries[i].item, null);
+        }
+    }
+
+}
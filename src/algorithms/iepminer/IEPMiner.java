@@ -29,14 +29,18 @@ import framework.exceptions.IllegalActionException;
 import framework.items.Item;
 import framework.items.NominalItem;
 import framework.items.Pattern;
+import framework.items.PatternPrefix;
 import framework.utils.Utils;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Stack;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import keel.Dataset.Instance;
 import keel.Dataset.InstanceSet;
 import sun.misc.Queue;
@@ -66,7 +70,6 @@ public class IEPMiner extends Model {
             minimumChiSquared = Double.parseDouble(params.get("Minimum Chi-Squared"));
 
             // Algorithm begin
-            PTree.headerTable = new ArrayList<>();
             int numClasses = training.getAttributeDefinitions().getOutputAttribute(0).getNumNominalValues();
             trainingInstances = new ArrayList<>();
             patternSet = new ArrayList<>();
@@ -77,7 +80,7 @@ public class IEPMiner extends Model {
                 System.out.println("Mining class " + (i + 1) + " of " + numClasses);
                 // gets the training instances
                 trainingInstances.clear();
-                root = new PTree(null, true);
+                ArrayList<Item> items = new ArrayList<>();
                 for (Instance inst : training.getInstances()) {
                     Pattern p = new Pattern(new ArrayList<Item>(), inst.getOutputNominalValuesInt(0) == i ? 0 : 1);
                     for (int j = 0; j < training.getAttributeDefinitions().getInputNumAttributes(); j++) {
@@ -86,10 +89,13 @@ public class IEPMiner extends Model {
                         }
                     }
                     trainingInstances.add(p);
+                    items.addAll(p.getItems());
                 }
+                HeaderTable headerTable = new HeaderTable(items);
+                root = new PTree(headerTable);
                 long t_ini = System.currentTimeMillis();
                 for (Pattern p : trainingInstances) {
-                    root.insertTree(p);
+                    root.insertTree(headerTable.encode(p), p.getClase());
                 }
                 System.out.println("Time to build the tree: " + (System.currentTimeMillis() - t_ini) / 1000f + " seconds.");
                 t_ini = System.currentTimeMillis();
@@ -99,8 +105,6 @@ public class IEPMiner extends Model {
                 super.patterns.addAll(patternSet);
                 //iEPs.clear();
                 patternSet.clear();
-                PTree.cleanLinks(-1);
-                PTree.headerTable.clear();
             }
             System.out.println("Time to finish mining: " + (System.currentTimeMillis() - t_start) / 1000f + " seconds.");
             super.setPatterns(pruneEPs(super.patterns));
@@ -167,74 +171,113 @@ public class IEPMiner extends Model {
     }
 
     /**
-     * Public function to mine root tree
+     * Public function to mine root tree. Each item of the header table is
+     * mined as an independent task over its own projected tree, and the
+     * patterns found by each task are merged in the order of the header table,
+     * so the result is the same than mining the tree sequentially.
      *
      * @param root
      */
     public void mineTree(PTree root, int clase) {
-        for (int i = PTree.headerTable.size() - 1; i >= 0; i--) {
-            ArrayList<Item> its = new ArrayList<>();
-            its.add(PTree.headerTable.get(i).item);
-            Pattern beta = new Pattern(its, clase);
-            // gets the counts for D1 and D2 for the header table to get support and gr.
-            double D1 = ((Integer) PTree.headerTable.get(i).count1).doubleValue();
-            double D2 = ((Integer) PTree.headerTable.get(i).count2).doubleValue();
-            double gr;
-            if (D1 != 0.0 && D2 == 0.0) {
-                gr = Double.POSITIVE_INFINITY;
-            } else if (D1 == 0.0 && D2 == 0.0) {
-                gr = 0;
-            } else {
-                gr = D1 / D2;
-            }
-            HashMap<String, Double> measures = new HashMap<>();
-            measures.put("GR", gr);
-            measures.put("SUPP", D1);
-            beta.setTra_measures(measures);
-            if (is_iEP(PTree.headerTable.get(i).count1, gr)) {
-                patternSet.add(beta);
-            }
+        HeaderTable headerTable = root.getHeaderTable();
+        int size = headerTable.size();
+        List<ArrayList<Pattern>> found = IntStream.range(0, size).parallel()
+                .mapToObj(i -> mineItem(root, size - 1 - i, clase))
+                .collect(Collectors.toList());
+        for (ArrayList<Pattern> iEPs : found) {
+            patternSet.addAll(iEPs);
+        }
+    }
 
-            /*
-            We prune the tree if:
-             1 - D1 and D2 counts are zero. This means that this pattern does not exist in the database
-             2 - growth rate is infinite. This means the pattern is a JEP, so supersets of a JEP are not interesting
-             3 - D1 counts < minimum support. This is due to Apriori property. If this pattern is not frequent, supersets of this one are not frequent too.
-             */
-            if (gr < Double.POSITIVE_INFINITY && PTree.headerTable.get(i).count1 >= minimumSupport) {
-                mineSubTree(beta);
-            }
+    /**
+     * Mines the patterns that starts with the given item of the header table
+     * of the root tree.
+     *
+     * @param root The root tree
+     * @param i The id of the item
+     * @param clase The class
+     * @return The iEPs found, in the order of the sequential mining.
+     */
+    private ArrayList<Pattern> mineItem(PTree root, int i, int clase) {
+        ArrayList<Pattern> iEPs = new ArrayList<>();
+        HeaderTableEntry entry = root.getHeaderTable().get(i);
+        PatternPrefix beta = PatternPrefix.EMPTY.extend(entry.item);
+        // gets the counts for D1 and D2 for the header table to get support and gr.
+        double D1 = ((Integer) entry.count1).doubleValue();
+        double D2 = ((Integer) entry.count2).doubleValue();
+        double gr;
+        if (D1 != 0.0 && D2 == 0.0) {
+            gr = Double.POSITIVE_INFINITY;
+        } else if (D1 == 0.0 && D2 == 0.0) {
+            gr = 0;
+        } else {
+            gr = D1 / D2;
         }
+        if (is_iEP(entry.count1, gr)) {
+            iEPs.add(toIEP(beta, clase, gr, D1));
+        }
+
+        /*
+        We prune the tree if:
+         1 - D1 and D2 counts are zero. This means that this pattern does not exist in the database
+         2 - growth rate is infinite. This means the pattern is a JEP, so supersets of a JEP are not interesting
+         3 - D1 counts < minimum support. This is due to Apriori property. If this pattern is not frequent, supersets of this one are not frequent too.
+         */
+        if (gr < Double.POSITIVE_INFINITY && entry.count1 >= minimumSupport) {
+            // The projected tree already holds the counts and node-links of
+            // the subtrees of the item, so only the item's own counts are set.
+            HeaderTable projected = root.project(i).getHeaderTable();
+            projected.get(i).count1 = entry.count1;
+            projected.get(i).count2 = entry.count2;
+            mineConditional(beta, clase, i, projected, iEPs);
+        }
+        return iEPs;
     }
 
     /**
      * Private and recursive function to mine the tree
      *
-     * @param node
+     * @param beta The pattern to extend
+     * @param clase The class
+     * @param headerTable The header table of the tree being mined
+     * @param iEPs Where the iEPs found are added
      */
-    private void mineSubTree(Pattern beta) {
-        Item k = beta.get(beta.length() - 1);
-        int positionItem = PTree.headerTable.indexOf(new HeaderTableEntry(k, null));
+    private void mineSubTree(PatternPrefix beta, int clase, HeaderTable headerTable, ArrayList<Pattern> iEPs) {
+        Item k = beta.last();
+        int positionItem = headerTable.getId(k);
         // Adjust the node links of k's subtrees and accumulate counts.
-        PTree node = PTree.headerTable.get(positionItem).headNodeLink;
-        PTree.cleanLinks(positionItem);
+        PTree node = headerTable.get(positionItem).headNodeLink;
+        headerTable.cleanLinks(positionItem);
         while (node != null) { // Traverse all nodes with the same item
             for (int i = 0; i < node.numChildren(); i++) {
                 // Adjust the node-links and counts
-                adjust(node.getChildren(i));
+                adjust(node.getChildren(i), headerTable);
             }
             // go to next item
             node = node.getNode_link();
         }
+        mineConditional(beta, clase, positionItem, headerTable, iEPs);
+    }
 
-        for (int j = PTree.headerTable.size() - 1; j > positionItem; j--) {
+    /**
+     * Extends {@code beta} with the items of the header table after its last
+     * item, whose counts and node-links must be the ones of the conditional
+     * pattern base of {@code beta}.
+     *
+     * @param beta The pattern to extend
+     * @param clase The class
+     * @param positionItem The id of the last item of beta
+     * @param headerTable The header table of the tree being mined
+     * @param iEPs Where the iEPs found are added
+     */
+    private void mineConditional(PatternPrefix beta, int clase, int positionItem, HeaderTable headerTable, ArrayList<Pattern> iEPs) {
+        for (int j = headerTable.size() - 1; j > positionItem; j--) {
             // gamma = beta U j
-            Pattern gamma = beta.clone();
-            gamma.add(PTree.headerTable.get(j).item);
+            PatternPrefix gamma = beta.extend(headerTable.get(j).item);
 
             // Check if gamma is an iEP
-            double D1 = ((Integer) PTree.headerTable.get(j).count1).doubleValue();
-            double D2 = ((Integer) PTree.headerTable.get(j).count2).doubleValue();
+            double D1 = ((Integer) headerTable.get(j).count1).doubleValue();
+            double D2 = ((Integer) headerTable.get(j).count2).doubleValue();
             double gr;
             if (D1 != 0.0 && D2 == 0.0) {
                 gr = Double.POSITIVE_INFINITY;
@@ -243,46 +286,61 @@ public class IEPMiner extends Model {
             } else {
                 gr = D1 / D2;
             }
-            HashMap<String, Double> measures = new HashMap<>();
-            measures.put("GR", gr);
-            measures.put("SUPP", D1);
-            gamma.setTra_measures(measures);
 
             int[] Y = {(int) D1, (int) D2};
-            int[] X = {PTree.headerTable.get(positionItem).count1, PTree.headerTable.get(positionItem).count2};
-            if (is_iEP(PTree.headerTable.get(j).count1, gr, Y, X)) {
-                patternSet.add(gamma);
+            int[] X = {headerTable.get(positionItem).count1, headerTable.get(positionItem).count2};
+            if (is_iEP(headerTable.get(j).count1, gr, Y, X)) {
+                iEPs.add(toIEP(gamma, clase, gr, D1));
             }
             // if chi(gamma,beta) >= nu the call recursively
 
             // Check chi-squared prunning. However, if the pattern obtained is a JEP, we prune, because non-minimal JEPs are not interesting
             if (chi(Y, X) >= minimumChiSquared && gr != Double.POSITIVE_INFINITY && Y[0] >= minimumSupport) {
-                mineSubTree(gamma);
+                mineSubTree(gamma, clase, headerTable, iEPs);
             }
 
         }
 
     }
 
+    /**
+     * Builds the pattern of an iEP found, with its training measures.
+     *
+     * @param prefix The items of the iEP
+     * @param clase The class
+     * @param gr The growth rate
+     * @param supp The counts in D1
+     * @return
+     */
+    private Pattern toIEP(PatternPrefix prefix, int clase, double gr, double supp) {
+        Pattern iEP = prefix.toPattern(clase);
+        HashMap<String, Double> measures = new HashMap<>();
+        measures.put("GR", gr);
+        measures.put("SUPP", supp);
+        iEP.setTra_measures(measures);
+        return iEP;
+    }
+
     /**
      * Adjust the counts of the header table of the given node, and link at the
      * last element of it header table node-link list. This is done recursively,
      * so the entire node subtree is adjusted.
      *
      * @param node The node to adjust
+     * @param headerTable The header table of the tree being mined
      */
-    private void adjust(PTree node) {
+    private void adjust(PTree node, HeaderTable headerTable) {
         // Go down to further processing
         for (int i = 0; i < node.numChildren(); i++) {
-            adjust(node.getChildren(i));
+            adjust(node.getChildren(i), headerTable);
         }
         // Get the header table associated with the node's item
-        int pos = PTree.headerTable.indexOf(new HeaderTableEntry(node.getItem(), null));
+        int pos = node.getItemId();
         // Sum the counts in the header table
-        PTree.headerTable.get(pos).count1 += node.getCountD1();
-        PTree.headerTable.get(pos).count2 += node.getCountD2();
+        headerTable.get(pos).count1 += node.getCountD1();
+        headerTable.get(pos).count2 += node.getCountD2();
         // link this node on the header table
-        PTree.headerTable.get(pos).addNodeLink(node);
+        headerTable.get(pos).addNodeLink(node);
 
     }
 
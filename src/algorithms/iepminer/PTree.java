@@ -24,7 +24,7 @@
 package algorithms.iepminer;
 
 import framework.items.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A class to represent the P-Tree structure to efficiently mine emmerging
@@ -47,6 +47,11 @@ public class PTree {
      */
     protected Item item;
 
+    /**
+     * The id of the item in the header table
+     */
+    protected int itemId;
+
     /**
      * The number of transactions of D1 represented by the portion of the path
      * reaching the node
@@ -60,9 +65,15 @@ public class PTree {
     protected int countD2;
 
     /**
-     * The children nodes of this one.
+     * The children nodes of this one, sorted by item id. Only the first
+     * {@code numChildren} positions are used.
+     */
+    private PTree[] childrens;
+
+    /**
+     * The number of children of this node.
      */
-    private ArrayList<PTree> childrens;
+    private int numChildren;
 
     /**
      * The next node in the tree that contains the same item than this one.
@@ -70,9 +81,9 @@ public class PTree {
     protected PTree node_link;
 
     /**
-     * The header table of node-links
+     * The header table of node-links. Only the root node owns it.
      */
-    public static ArrayList<HeaderTableEntry> headerTable;
+    private HeaderTable headerTable;
 
     /**
      * Default constructor
@@ -81,7 +92,8 @@ public class PTree {
      * @param root
      */
     public PTree(Item item, boolean root) {
-        this.childrens = new ArrayList<>();
+        this.childrens = new PTree[2];
+        this.numChildren = 0;
         this.countD1 = 0;
         this.countD2 = 0;
         this.item = item;
@@ -89,6 +101,28 @@ public class PTree {
         this.root = root;
     }
 
+    /**
+     * Constructor of a node with the id of its item in the header table
+     *
+     * @param item
+     * @param itemId
+     */
+    public PTree(Item item, int itemId) {
+        this(item, false);
+        this.itemId = itemId;
+    }
+
+    /**
+     * Constructor of the root node of a tree with the given header table
+     *
+     * @param headerTable
+     */
+    public PTree(HeaderTable headerTable) {
+        this(null, true);
+        this.itemId = -1;
+        this.headerTable = headerTable;
+    }
+
     @Override
     public boolean equals(Object other) {
         PTree o = (PTree) other;
@@ -101,96 +135,135 @@ public class PTree {
      * @param pat The pattern to insert
      */
     public void insertTree(Pattern pat) {
-        // Sorts the items in the pattern by lexycographicall order 
-        // Rememeber that all items are of class NominalItem.
-        pat.getItems().sort((o1, o2) -> {
-            return -1 * o1.compareTo(o2);
-        });
-        insertTree(pat, this);
+        insertTree(headerTable.encode(pat), pat.getClase());
     }
 
     /**
-     * Private and recursive function to insert a pattern into the P-Tree
+     * Inserts an instance, encoded as the ids of its items in ascending
+     * order, on the P-Tree. The path is walked with a cursor over the
+     * transaction, so neither the transaction nor the children are copied
+     * or sorted.
      *
-     * @param pat The pattern to insert
-     * @param node The node to introduce an item
+     * @param transaction The ids of the items of the instance, sorted in
+     * ascending order
+     * @param clase 0 if the instance belongs to D1, 1 if it belongs to D2
      */
-    private void insertTree(Pattern pat, PTree node) {
-        if (!pat.getItems().isEmpty()) {
-            Pattern p = (Pattern) pat.clone();
-            Item actual = p.get(p.length()-1);
-            int index = -1;
-            boolean newNodeInserted = false;
-            PTree newNode = null;
-            boolean exist = false;
+    public void insertTree(int[] transaction, int clase) {
+        PTree node = this;
+        for (int cursor = 0; cursor < transaction.length; cursor++) {
+            int id = transaction[cursor];
+            HeaderTableEntry entry = headerTable.get(id);
             // Look on node's children for this item
-            for (int i = 0; i < node.childrens.size() && !exist; i++) {
-                if (node.childrens.get(i).equals(new PTree(actual, false))) {
-                    exist = true;
-                    index = i;
-                }
+            int pos = node.searchChild(id);
+            PTree child;
+            if (pos >= 0) {
+                child = node.childrens[pos];
+            } else {
+                // If not exists, adds the node in its place, so the children
+                // keep sorted, and insert it as the last node-link
+                child = new PTree(entry.item, id);
+                node.insertChild(-pos - 1, child);
+                entry.addNodeLink(child);
             }
-            if (!exist) {
-                // If not exists, adds the node
-                newNode = new PTree(actual, false);
-                //Look the class of the pattern and increment counts
-                if (p.getClase() == 0) {
-                    newNode.countD1++;
-                } else {
-                    newNode.countD2++;
-                }
-                // Adds the node in the tree
-                node.childrens.add(newNode);
-                // Sort the childrens according to the order
-                node.childrens.sort((PTree o1, PTree o2) -> {
-                    return o1.getItem().compareTo(o2.getItem());
-                });
-                newNodeInserted = true;
-                index = node.childrens.indexOf(newNode);
+            //Look the class of the pattern and increment counts, both in the
+            //node and in the header table
+            if (clase == 0) {
+                child.countD1++;
+                entry.count1++;
             } else {
-                // The item exist, increments its counts
-                //index = node.childrens.indexOf(new PTree(actual, false));
-                if (p.getClase() == 0) {
-                    node.childrens.get(index).countD1++;
-                } else {
-                    node.childrens.get(index).countD2++;
-                }
+                child.countD2++;
+                entry.count2++;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Builds the projected tree of the given item, i.e., a new tree which
+     * merges all the subtrees below the nodes of that item, accumulating the
+     * counts of the nodes with the same path. The header table of the
+     * projected tree has the same ids than this one, and its counts and
+     * node-links are the ones of the item's conditional pattern base. This
+     * tree is only read, so several projections can be built at the same
+     * time.
+     *
+     * @param itemId The id of the item
+     * @return The root of the projected tree
+     */
+    public PTree project(int itemId) {
+        PTree projection = new PTree(headerTable.emptyCopy());
+        for (PTree node = headerTable.get(itemId).headNodeLink; node != null; node = node.node_link) {
+            for (int i = 0; i < node.numChildren; i++) {
+                projection.merge(node.childrens[i], projection);
             }
+        }
+        return projection;
+    }
+
+    /**
+     * Recursively merges a copy of the subtree of {@code source} as a child of
+     * {@code target}, being this the root of the tree which owns the target.
+     *
+     * @param source The subtree to copy
+     * @param target The node where the subtree is merged
+     */
+    private void merge(PTree source, PTree target) {
+        HeaderTableEntry entry = headerTable.get(source.itemId);
+        int pos = target.searchChild(source.itemId);
+        PTree child;
+        if (pos >= 0) {
+            child = target.childrens[pos];
+        } else {
+            child = new PTree(source.item, source.itemId);
+            target.insertChild(-pos - 1, child);
+            entry.addNodeLink(child);
+        }
+        child.countD1 += source.countD1;
+        child.countD2 += source.countD2;
+        entry.count1 += source.countD1;
+        entry.count2 += source.countD2;
+        for (int i = 0; i < source.numChildren; i++) {
+            merge(source.childrens[i], child);
+        }
+    }
 
-            // look if the item exist in the header table
-            if (headerTable.contains(new HeaderTableEntry(actual, null))) {
-                // if exists, increment the global counts
-                int ind = headerTable.indexOf(new HeaderTableEntry(actual, null));
-                if (p.getClase() == 0) {
-                    headerTable.get(ind).count1++;
-                } else {
-                    headerTable.get(ind).count2++;
-                }
-                // and if it is a new node inserted, insert as the last node-link
-                if (newNodeInserted) {
-                    headerTable.get(ind).addNodeLink(newNode);
-                }
+    /**
+     * Binary search of a child by the id of its item
+     *
+     * @param id The id of the item
+     * @return The position of the child, or {@code -(insertion point) - 1} if
+     * it does not exist
+     */
+    private int searchChild(int id) {
+        int low = 0;
+        int high = numChildren - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = childrens[mid].itemId;
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
             } else {
-                HeaderTableEntry entry;
-                if(newNodeInserted){
-                    entry = new HeaderTableEntry(actual, newNode);
-                } else {
-                    entry = new HeaderTableEntry(actual, node);
-                }
-               entry.count1 += newNode.countD1;
-               entry.count2 += newNode.countD2;
-                // Add the entry in the table
-                headerTable.add(entry);
-                //Sort the table
-                headerTable.sort((o1, o2) -> {
-                    return o1.item.compareTo(o2.item);
-                });
+                return mid;
             }
+        }
+        return -(low + 1);
+    }
 
-            // Performs the recursive call removing the item of the pattern
-            p.getItems().remove(p.length() - 1);
-            insertTree(p, node.childrens.get(index));
+    /**
+     * Inserts a child at the given position, shifting the following ones
+     *
+     * @param pos The position
+     * @param child The new child
+     */
+    private void insertChild(int pos, PTree child) {
+        if (numChildren == childrens.length) {
+            childrens = Arrays.copyOf(childrens, numChildren * 2);
         }
+        System.arraycopy(childrens, pos, childrens, pos + 1, numChildren - pos);
+        childrens[pos] = child;
+        numChildren++;
     }
 
     /**
@@ -207,6 +280,20 @@ public class PTree {
         return item;
     }
 
+    /**
+     * @return the id of the item in the header table
+     */
+    public int getItemId() {
+        return itemId;
+    }
+
+    /**
+     * @return the header table of the tree, if this is the root node
+     */
+    public HeaderTable getHeaderTable() {
+        return headerTable;
+    }
+
     /**
      * @return the countD1
      */
@@ -251,39 +338,18 @@ public class PTree {
      */
     private void clear(PTree node) {
         // Go down to a leaf node.
-        if (!node.childrens.isEmpty()) {
-           for(int i = 0; i < node.childrens.size(); i++){
-               clear(node.childrens.get(i));
-           }
+        for (int i = 0; i < node.numChildren; i++) {
+            clear(node.childrens[i]);
+            node.childrens[i] = null;
         }
-        node.childrens.clear();
+        node.numChildren = 0;
     }
 
     public PTree getChildren(int pos){
-        return childrens.get(pos);
+        return childrens[pos];
     }
     
     public int numChildren(){
-        return childrens.size();
+        return numChildren;
     }
-    
-    /**
-     * Sets the nodes from {@code startIndex +1 } untill the end of the header table with counts equal to 0 and null node-links
-     * @param startIndex 
-     */
-    public static void cleanLinks(int startIndex){
-        if(startIndex + 1 < headerTable.size()){
-            for(int i = startIndex + 1; i < headerTable.size(); i++){
-                // remove all node links for this item
-                PTree aux = headerTable.get(i).headNodeLink;
-                while(aux != null){
-                    PTree aux2 = aux.node_link;
-                    aux.node_link = null;
-                    aux = aux2;
-                }
-                headerTable.set(i, new HeaderTableEntry(headerTable.get(i).item, null));
-            }
-        }
-    }
-    
 }
@@ -29,17 +29,21 @@ import framework.exceptions.IllegalActionException;
 import framework.items.Item;
 import framework.items.NominalItem;
 import framework.items.Pattern;
+import framework.items.PatternPrefix;
+import framework.utils.LongBitSet;
 import framework.utils.Utils;
 import framework.utils.cptree.*;
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import keel.Dataset.Attributes;
 import keel.Dataset.InstanceSet;
 
@@ -69,12 +73,17 @@ public class SJEP_Classifier extends Model {
      * The bit string representation for those items that appear in D1. An "1"
      * at bit position k means that this Item appear in the transaction number k
      */
-    private HashMap<Item, BigInteger> itemCountsForD1;
+    private HashMap<Item, LongBitSet> itemCountsForD1;
     /**
      * The bit string representation for those items that appear in D2. An "1"
      * at bit position k means that this Item appear in the transaction number k
      */
-    private HashMap<Item, BigInteger> itemCountsForD2;
+    private HashMap<Item, LongBitSet> itemCountsForD2;
+    /**
+     * The bit string where the intersections of the bit strings of the items
+     * are computed, reused for every count of a thread to avoid allocations.
+     */
+    private transient ThreadLocal<LongBitSet> scratch;
     /**
      * The priority queue where top-k positive patterns are stored.
      */
@@ -133,26 +142,14 @@ public class SJEP_Classifier extends Model {
                     }
                 }
 
+                // Fill the tree, sorted by the support-ratio ordering for efficiency
+                tree.setItemOrder(supportRatioPerItem);
                 for (Pattern p : instances) {
-                    // Sort the patterns according to the support-ratio inverse ordering for efficiency
-                    p.getItems().sort((o1, o2) -> {
-                        double gr1 = supportRatioPerItem.get(o1);
-                        double gr2 = supportRatioPerItem.get(o2);
-                        if (gr1 > gr2) {
-                            return 1;
-                        } else if (gr1 < gr2) {
-                            return -1;
-                        } else {
-
-                            return -1 * ((NominalItem) o1).compareTo(o2);
-
-                        }
-                    });
-                    tree.insert(p, supportRatioPerItem);
+                    tree.insert(p);
                 }
                 t_ini = System.currentTimeMillis();
                 // Mine the tree looking for SJEPs !
-                mineTree(tree.getRoot(), new Pattern(new ArrayList<Item>(), 0), false);
+                mineTree(tree.getRoot(), 0, false);
 
             } else {
                 //MULTICLASS - WITH ONE VS ALL BINARZATION
@@ -189,27 +186,15 @@ public class SJEP_Classifier extends Model {
                         }
                     }
                     System.out.println("Creating the tree...");
+                    // Fill the tree, sorted by the support-ratio ordering for efficiency
+                    tree.setItemOrder(supportRatioPerItem);
                     for (Pattern p : instances) {
-                        // Sort the patterns according to the support-ratio inverse ordering for efficiency
-                        p.getItems().sort((o1, o2) -> {
-                            double gr1 = supportRatioPerItem.get(o1);
-                            double gr2 = supportRatioPerItem.get(o2);
-                            if (gr1 > gr2) {
-                                return 1;
-                            } else if (gr1 < gr2) {
-                                return -1;
-                            } else {
-
-                                return -1 * ((NominalItem) o1).compareTo(o2);
-
-                            }
-                        });
-                        tree.insert(p, supportRatioPerItem);
+                        tree.insert(p);
                     }
                     System.out.println("Mining!");
                     t_ini = System.currentTimeMillis();
                     // Mine the tree looking for SJEPs !
-                    mineTree(tree.getRoot(), new Pattern(new ArrayList<Item>(), i), true);
+                    mineTree(tree.getRoot(), i, true);
                     System.out.println("Mining took: " + (System.currentTimeMillis() - t_ini) / 1000d + " seconds.");
                     // Clean auxiliar variables for the next class computation
                     itemCountsForD1.clear();
@@ -297,64 +282,109 @@ public class SJEP_Classifier extends Model {
         while (iterator.hasNext()) {
             Item it = iterator.next();
             // set bits to zero
-            BigInteger a = BigInteger.ZERO;
-            itemCountsForD1.put(it, a);
-            itemCountsForD2.put(it, a);
+            itemCountsForD1.put(it, new LongBitSet(instances.size()));
+            itemCountsForD2.put(it, new LongBitSet(instances.size()));
         }
+        int size = instances.size();
+        scratch = ThreadLocal.withInitial(() -> new LongBitSet(size));
 
         for (int i = 0; i < instances.size(); i++) {
             for (Item it : instances.get(i).getItems()) {
                 if (instances.get(i).getClase() == 0) {
-                    itemCountsForD1.put(it, itemCountsForD1.get(it).setBit(i));
+                    itemCountsForD1.get(it).set(i);
                 } else {
-                    itemCountsForD2.put(it, itemCountsForD2.get(it).setBit(i));
+                    itemCountsForD2.get(it).set(i);
                 }
             }
         }
     }
 
-    public void mineTree(Node node, Pattern alpha, boolean OVA) {
+    /**
+     * Mines the SJEPs of the tree. Each item of the root is mined as an
+     * independent task over its projection, and the patterns found by each
+     * task are added in the order of the root, so the result is the same than
+     * mining the tree sequentially.
+     *
+     * @param root The root of the CP-Tree
+     * @param clase The class of the positive patterns
+     * @param OVA {@code true} if the negative patterns are not wanted.
+     */
+    public void mineTree(Node root, int clase, boolean OVA) {
+        List<ArrayList<Pattern>> found = IntStream.range(0, tree.getNumItems()).parallel()
+                .mapToObj(r -> {
+                    ArrayList<Pattern> sjeps = new ArrayList<>();
+                    Node projection = root.project(r);
+                    if (projection.getItemNumber() > 0) {
+                        mineEntry(projection, 0, PatternPrefix.EMPTY, clase, OVA, sjeps);
+                    }
+                    return sjeps;
+                })
+                .collect(Collectors.toList());
+        for (ArrayList<Pattern> sjeps : found) {
+            super.patterns.addAll(sjeps);
+        }
+    }
+
+    /**
+     * Recursive function to mine a subtree of the CP-Tree
+     *
+     * @param node The root of the subtree
+     * @param alpha The pattern of the path to the subtree
+     * @param clase The class of the positive patterns
+     * @param OVA {@code true} if the negative patterns are not wanted.
+     * @param sjeps Where the patterns found are added
+     */
+    private void mineTree(Node node, PatternPrefix alpha, int clase, boolean OVA, ArrayList<Pattern> sjeps) {
         // for all i in t.items
-        for (int j = 0; j < node.getItems().size(); j++) {
-            if (node.getItems().get(j).visited) {
-                continue;
-            }
+        for (int j = 0; j < node.getItemNumber(); j++) {
             // if the subtree is not empty then merge
-            if (node.getItems().get(j).getChild() != null) {
-                if (!node.getItems().get(j).getChild().getItems().isEmpty()) {
-                    node.merge(node.getItems().get(j).getChild(), supportRatioPerItem);
-                }
+            if (node.getChild(j) != null && node.getChild(j).getItemNumber() > 0) {
+                node.merge(node.getChild(j));
             }
-            Entry i = node.getItems().get(j);
-            Pattern beta = alpha.clone();
-            beta.add(i.getItem());
-
-            // We are looking for patterns only on the positive class to allow multiclass problems.
-            if (acceptPattern(beta, i.getCountD1(), i.getCountD2(), minPosCount)) {
-                //beta.setClase(i);
-                HashMap<String, Double> m = new HashMap<>();
-                m.put("SUPP", ((Integer) i.getCountD1()).doubleValue());
-                beta.setTra_measures(m);
-                super.patterns.add(beta.clone());
+            mineEntry(node, j, alpha, clase, OVA, sjeps);
+            node.setChild(j, null);
+            //System.gc(); // Force garbage collector
+        }
+    }
 
+    /**
+     * Mines the given entry of a node, whose subtree has already been merged.
+     *
+     * @param node The node
+     * @param j The position of the entry
+     * @param alpha The pattern of the path to the node
+     * @param clase The class of the positive patterns
+     * @param OVA {@code true} if the negative patterns are not wanted.
+     * @param sjeps Where the patterns found are added
+     */
+    private void mineEntry(Node node, int j, PatternPrefix alpha, int clase, boolean OVA, ArrayList<Pattern> sjeps) {
+        int countD1 = node.getCountD1(j);
+        int countD2 = node.getCountD2(j);
+        PatternPrefix beta = alpha.extend(tree.getItem(node.getRank(j)));
+
+        // We are looking for patterns only on the positive class to allow multiclass problems.
+        if (acceptPattern(beta, countD1, countD2, minPosCount)) {
+            //beta.setClase(i);
+            Pattern pattern = beta.toPattern(clase);
+            HashMap<String, Double> m = new HashMap<>();
+            m.put("SUPP", ((Integer) countD1).doubleValue());
+            pattern.setTra_measures(m);
+            sjeps.add(pattern);
+
+        } else {
+            if (acceptPattern(beta, countD2, countD1, minNegCount)) {
+                if (!OVA) { // If we are in OVA multiclass, we dont want patterns for the negative class, but we want the pruning.
+                    Pattern pattern = beta.toPattern(1);
+                    HashMap<String, Double> m = new HashMap<>();
+                    m.put("SUPP", ((Integer) countD2).doubleValue());
+                    pattern.setTra_measures(m);
+                    sjeps.add(pattern);
+                }
             } else {
-                if (acceptPattern(beta, i.getCountD2(), i.getCountD1(), minNegCount)) {
-                    if (!OVA) { // If we are in OVA multiclass, we dont want patterns for the negative class, but we want the pruning.
-                        beta.setClase(1);
-                        HashMap<String, Double> m = new HashMap<>();
-                        m.put("SUPP", ((Integer) i.getCountD2()).doubleValue());
-                        beta.setTra_measures(m);
-                        super.patterns.add(beta.clone());
-                    }
-                } else {
-                    if (visitSubTree(beta, i) && i.getChild() != null) {
-                        mineTree(i.getChild(), beta, OVA);
-                    }
+                if (visitSubTree(beta, countD1, countD2) && node.getChild(j) != null) {
+                    mineTree(node.getChild(j), beta, clase, OVA, sjeps);
                 }
             }
-
-            i.setChild(null);
-            //System.gc(); // Force garbage collector
         }
     }
 
@@ -366,22 +396,37 @@ public class SJEP_Classifier extends Model {
      * @param forD1
      * @return
      */
-    public int getPatternCount(Pattern p, boolean forD1) {
-        BigInteger a;
-        if (forD1) {
-            a = itemCountsForD1.get(p.get(0));
-        } else {
-            a = itemCountsForD2.get(p.get(0));
-        }
+    public int getPatternCount(PatternPrefix p, boolean forD1) {
+        return getPatternCount(p, -1, forD1);
+    }
 
-        for (int i = 1; i < p.length(); i++) {
-            if (forD1) {
-                a = a.and(itemCountsForD1.get(p.get(i)));
-            } else {
-                a = a.and(itemCountsForD2.get(p.get(i)));
+    /**
+     * Gets the counts for D1 (or D2 if forD1 == false) of the pattern without
+     * the item at the given position, i.e., the counts of one of its
+     * subsets. The bit strings are intersected in place in a scratch buffer,
+     * so nothing is allocated.
+     *
+     * @param p The pattern
+     * @param skip The position of the item to leave out, or -1 to count the
+     * whole pattern
+     * @param forD1
+     * @return
+     */
+    private int getPatternCount(PatternPrefix p, int skip, boolean forD1) {
+        HashMap<Item, LongBitSet> bitStrings = forD1 ? itemCountsForD1 : itemCountsForD2;
+        LongBitSet scratch = this.scratch.get();
+        boolean first = true;
+        for (PatternPrefix q = p; q.length() > 0; q = q.parent()) {
+            if (q.length() - 1 != skip) {
+                if (first) {
+                    scratch.copyFrom(bitStrings.get(q.last()));
+                    first = false;
+                } else {
+                    scratch.and(bitStrings.get(q.last()));
+                }
             }
         }
-        return a.bitCount();
+        return scratch.cardinality();
     }
 
     /**
@@ -396,7 +441,7 @@ public class SJEP_Classifier extends Model {
      * class, {@code false} into the negative one.
      * @return
      */
-    public boolean acceptPattern(Pattern beta, int countD1, int countD2, int minCount) {
+    public boolean acceptPattern(PatternPrefix beta, int countD1, int countD2, int minCount) {
         // check if the patter is a JEP
         return countD1 >= minCount && countD2 == 0;
     }
@@ -406,12 +451,13 @@ public class SJEP_Classifier extends Model {
      * visited or not.
      *
      * @param beta The pattern to check
-     * @param entry The actual node
+     * @param countD1 The counts for D1 of the actual entry
+     * @param countD2 The counts for D2 of the actual entry
      * @return
      */
-    public boolean visitSubTree(Pattern beta, Entry entry) {
+    public boolean visitSubTree(PatternPrefix beta, int countD1, int countD2) {
         // check if child node has minimal counts
-        return entry.getCountD1() >= minPosCount || entry.getCountD2() >= minNegCount;
+        return countD1 >= minPosCount || countD2 >= minNegCount;
     }
 
     private void filterMinimals() {
@@ -29,15 +29,20 @@ import framework.exceptions.IllegalActionException;
 import framework.items.Item;
 import framework.items.NominalItem;
 import framework.items.Pattern;
+import framework.items.PatternPrefix;
+import framework.utils.LongBitSet;
 import framework.utils.Utils;
 import framework.utils.cptree.*;
-import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import keel.Dataset.InstanceSet;
@@ -66,12 +71,17 @@ public class TopK extends Model {
      * The bit string representation for those items that appear in D1. An "1"
      * at bit position k means that this Item appear in the transaction number k
      */
-    private HashMap<Item, BigInteger> itemCountsForD1;
+    private HashMap<Item, LongBitSet> itemCountsForD1;
     /**
      * The bit string representation for those items that appear in D2. An "1"
      * at bit position k means that this Item appear in the transaction number k
      */
-    private HashMap<Item, BigInteger> itemCountsForD2;
+    private HashMap<Item, LongBitSet> itemCountsForD2;
+    /**
+     * The bit string where the intersections of the bit strings of the items
+     * are computed, reused for every count of a thread to avoid allocations.
+     */
+    private transient ThreadLocal<LongBitSet> scratch;
     /**
      * The priority queue where top-k positive patterns are stored.
      */
@@ -84,6 +94,12 @@ public class TopK extends Model {
      * The minimum count for positive instances
      */
     private int minPosCount = 0;
+    /**
+     * A lower bound of the minimum count for positive instances, shared by
+     * the mining tasks to prune the tree. It is raised as the patterns of the
+     * tasks are added to the top-k, in the order of the root of the tree.
+     */
+    private transient AtomicInteger minPosBound;
     /**
      * The minimum count for negative instances
      */
@@ -97,6 +113,18 @@ public class TopK extends Model {
      */
     private int k;
 
+    /**
+     * Whether the items of the root are mined in descending order of their
+     * counts in D1, so the minimum count grows faster.
+     */
+    private boolean bestFirst;
+
+    /**
+     * The time, in milliseconds, after which the mining of the actual class
+     * stops, returning the top-k patterns found so far.
+     */
+    private long deadline;
+
     @Override
     public void learn(InstanceSet training, HashMap<String, String> params) {
         try {
@@ -107,6 +135,10 @@ public class TopK extends Model {
             itemCountsForD1 = new HashMap<>();
             itemCountsForD2 = new HashMap<>();
             k = Integer.parseInt(params.get("K"));
+            bestFirst = "best-first".equals(params.get("Search"));
+            long timeLimit = params.get("Time Limit") == null ? 0 : Long.parseLong(params.get("Time Limit")) * 1000;
+            long t_ini = System.currentTimeMillis();
+            minPosBound = new AtomicInteger();
 
             topK_PosPatterns = new PriorityQueue<>((Pattern o1, Pattern o2) -> {
                 double supp1 = o1.getTraMeasure("SUPP");
@@ -129,32 +161,28 @@ public class TopK extends Model {
             int numClasses = training.getAttributeDefinitions().getOutputAttribute(0).getNumNominalValues();
             // Mine for each class separately
             for (int i = 0; i < numClasses; i++) {
+                // The time limit is split among the classes. The time not
+                // used by a class is left for the next ones.
+                deadline = timeLimit > 0 ? t_ini + timeLimit * (i + 1) / numClasses : Long.MAX_VALUE;
                 // Retrieve training patterns
                 ArrayList<Pattern> instances = Utils.generatePatterns(training, i);
                 // get the support ratio for each item
                 getSupportRatioForItems(instances);
                 getBitStrings(instances);
-                // Fill the tree
+                // Fill the tree, sorted by the support-ratio ordering for efficiency
+                tree.setItemOrder(supportRatioPerItem);
                 for (Pattern p : instances) {
-                    // Sort the pattern according to the support-ratio inverse ordering for efficiency
-                    p.getItems().sort((o1, o2) -> {
-                        double gr1 = supportRatioPerItem.get(o1);
-                        double gr2 = supportRatioPerItem.get(o2);
-                        if (gr1 > gr2) {
-                            return 1;
-                        } else if (gr1 < gr2) {
-                            return -1;
-                        } else {
-                            return ((NominalItem) o1).compareTo(o2);
-                        }
-                    });
-                    tree.insert(p, supportRatioPerItem);
+                    tree.insert(p);
                 }
                 // Mine the tree looking for Top-k SJEPs !
-                mineTree(tree.getRoot(), new Pattern(new ArrayList<Item>(), i));
+                mineTree(tree.getRoot(), i);
+                if (expired()) {
+                    System.out.println("Time limit reached: the top-k patterns of class " + i + " may be partial.");
+                }
 
                 // Clean auxiliar variables for the next class computation
                 collectedNegPatterns = collectedPosPatterns = minNegCount = minPosCount = 0;
+                minPosBound.set(0);
                 itemCountsForD1.clear();
                 itemCountsForD2.clear();
                 countsPerItem.clear();
@@ -232,56 +260,147 @@ public class TopK extends Model {
         while (iterator.hasNext()) {
             Item it = iterator.next();
             // set bits to zero
-            BigInteger a = BigInteger.ZERO;
-            itemCountsForD1.put(it, a);
-            itemCountsForD2.put(it, a);
+            itemCountsForD1.put(it, new LongBitSet(instances.size()));
+            itemCountsForD2.put(it, new LongBitSet(instances.size()));
         }
+        int size = instances.size();
+        scratch = ThreadLocal.withInitial(() -> new LongBitSet(size));
 
         for (int i = 0; i < instances.size(); i++) {
             for (Item it : instances.get(i).getItems()) {
                 if (instances.get(i).getClase() == 0) {
-                    itemCountsForD1.put(it, itemCountsForD1.get(it).setBit(i));
+                    itemCountsForD1.get(it).set(i);
                 } else {
-                    itemCountsForD2.put(it, itemCountsForD2.get(it).setBit(i));
+                    itemCountsForD2.get(it).set(i);
                 }
             }
         }
     }
 
-    public void mineTree(Node node, Pattern alpha) {
-        // for all i in t.items
-        for (int j = 0; j < node.getItems().size(); j++) {
-            // if the subtree is not empty then merge
-            if (node.getItems().get(j).getChild() != null) {
-                if (!node.getItems().get(j).getChild().getItems().isEmpty()) {
-                    node.merge(node.getItems().get(j).getChild(), supportRatioPerItem);
+    /**
+     * Mines the top-k patterns of the tree. Each item of the root is mined as
+     * an independent task over its projection, which collects the patterns
+     * accepted with the shared bound of the minimum count. Once the tasks of
+     * all the previous items are finished, these patterns are added to the
+     * top-k in the same order a sequential mining would find them, and the
+     * bound is raised. Thus, the result is the same than the sequential one.
+     * <p>
+     * The counts in D1 of an item are an upper bound of the counts of all the
+     * patterns of its branch, so the branches whose bound is not greater than
+     * the minimum count are not mined. In best-first search, the items are
+     * mined in descending order of this bound. If the deadline is reached, the
+     * tasks stop and the top-k of the patterns found so far is kept.
+     *
+     * @param root The root of the CP-Tree
+     * @param clase The class of the patterns
+     */
+    public void mineTree(Node root, int clase) {
+        int numItems = tree.getNumItems();
+        Integer[] order = new Integer[numItems];
+        int[] upperBound = new int[numItems];
+        for (int r = 0; r < numItems; r++) {
+            order[r] = r;
+            upperBound[r] = countsPerItem.get(tree.getItem(r)).D1;
+        }
+        if (bestFirst) {
+            Arrays.sort(order, (r1, r2) -> Integer.compare(upperBound[r2], upperBound[r1]));
+        }
+
+        ArrayList<ArrayList<Candidate>> found = new ArrayList<>(Collections.nCopies(numItems, null));
+        int[] added = {0};
+        IntStream.range(0, numItems).parallel().forEach(t -> {
+            int r = order[t];
+            ArrayList<Candidate> candidates = new ArrayList<>();
+            if (upperBound[r] > minPosBound.get() && !expired()) {
+                Node projection = root.project(r);
+                if (projection.getItemNumber() > 0) {
+                    mineEntry(projection, 0, PatternPrefix.EMPTY, candidates);
                 }
             }
-            Entry i = node.getItems().get(j);
-            Pattern beta = alpha.clone();
-            beta.add(i.getItem());
-
-            // We are only looking for patterns on the positive class to allow multiclass problems.
-            if (acceptPattern(beta, i.getCountD1(), i.getCountD2(), minPosCount, true)) {
-                //beta.setClase(i);
-                HashMap<String, Double> m = new HashMap<>();
-                m.put("SUPP", ((Integer) i.getCountD1()).doubleValue());
-                beta.setTra_measures(m);
-
-                if (topK_PosPatterns.size() > k) {
-                    topK_PosPatterns.poll();
-                    minPosCount = (int) topK_PosPatterns.peek().getTraMeasure("SUPP") + 1;
+            synchronized (found) {
+                found.set(t, candidates);
+                while (added[0] < numItems && found.get(added[0]) != null) {
+                    for (Candidate c : found.get(added[0])) {
+                        addToTopK(c, clase);
+                    }
+                    found.set(added[0]++, null);
                 }
-                topK_PosPatterns.offer(beta.clone());
+                minPosBound.set(minPosCount);
+            }
+        });
+    }
+
+    /**
+     * @return {@code true} if the deadline of the mining has been reached
+     */
+    private boolean expired() {
+        return System.currentTimeMillis() > deadline;
+    }
 
-            } else if (visitSubTree(beta, i) && i.getChild() != null) {
-                mineTree(i.getChild(), beta);
+    /**
+     * Recursive function to mine a subtree of the CP-Tree
+     *
+     * @param node The root of the subtree
+     * @param alpha The pattern of the path to the subtree
+     * @param candidates Where the accepted patterns are added
+     */
+    private void mineTree(Node node, PatternPrefix alpha, ArrayList<Candidate> candidates) {
+        // for all i in t.items
+        for (int j = 0; j < node.getItemNumber() && !expired(); j++) {
+            // if the subtree is not empty then merge
+            if (node.getChild(j) != null && node.getChild(j).getItemNumber() > 0) {
+                node.merge(node.getChild(j));
             }
-            i.setChild(null);
+            mineEntry(node, j, alpha, candidates);
+            node.setChild(j, null);
             //System.gc();
         }
     }
 
+    /**
+     * Mines the given entry of a node, whose subtree has already been merged.
+     *
+     * @param node The node
+     * @param j The position of the entry
+     * @param alpha The pattern of the path to the node
+     * @param candidates Where the accepted patterns are added
+     */
+    private void mineEntry(Node node, int j, PatternPrefix alpha, ArrayList<Candidate> candidates) {
+        int countD1 = node.getCountD1(j);
+        int countD2 = node.getCountD2(j);
+        PatternPrefix beta = alpha.extend(tree.getItem(node.getRank(j)));
+
+        // We are only looking for patterns on the positive class to allow multiclass problems.
+        if (acceptPattern(beta, countD1, countD2, minPosBound.get(), true)) {
+            candidates.add(new Candidate(beta, countD1));
+        } else if (visitSubTree(beta, countD1) && node.getChild(j) != null) {
+            mineTree(node.getChild(j), beta, candidates);
+        }
+    }
+
+    /**
+     * Adds an accepted pattern to the top-k if its counts are greater than
+     * the minimum count, which is updated when the queue is full.
+     *
+     * @param c The pattern
+     * @param clase The class of the pattern
+     */
+    private void addToTopK(Candidate c, int clase) {
+        if (c.countD1 > minPosCount) {
+            //beta.setClase(i);
+            Pattern pattern = c.pattern.toPattern(clase);
+            HashMap<String, Double> m = new HashMap<>();
+            m.put("SUPP", ((Integer) c.countD1).doubleValue());
+            pattern.setTra_measures(m);
+
+            if (topK_PosPatterns.size() > k) {
+                topK_PosPatterns.poll();
+                minPosCount = (int) topK_PosPatterns.peek().getTraMeasure("SUPP") + 1;
+            }
+            topK_PosPatterns.offer(pattern);
+        }
+    }
+
     /**
      * Gets the pattern counts for D1 (or D2 if forD1 == false) using the bit
      * strings
@@ -290,22 +409,37 @@ public class TopK extends Model {
      * @param forD1
      * @return
      */
-    public int getPatternCount(Pattern p, boolean forD1) {
-        BigInteger a;
-        if (forD1) {
-            a = itemCountsForD1.get(p.get(0));
-        } else {
-            a = itemCountsForD2.get(p.get(0));
-        }
+    public int getPatternCount(PatternPrefix p, boolean forD1) {
+        return getPatternCount(p, -1, forD1);
+    }
 
-        for (int i = 1; i < p.length(); i++) {
-            if (forD1) {
-                a = a.and(itemCountsForD1.get(p.get(i)));
-            } else {
-                a = a.and(itemCountsForD2.get(p.get(i)));
+    /**
+     * Gets the counts for D1 (or D2 if forD1 == false) of the pattern without
+     * the item at the given position, i.e., the counts of one of its
+     * subsets. The bit strings are intersected in place in a scratch buffer,
+     * so nothing is allocated.
+     *
+     * @param p The pattern
+     * @param skip The position of the item to leave out, or -1 to count the
+     * whole pattern
+     * @param forD1
+     * @return
+     */
+    private int getPatternCount(PatternPrefix p, int skip, boolean forD1) {
+        HashMap<Item, LongBitSet> bitStrings = forD1 ? itemCountsForD1 : itemCountsForD2;
+        LongBitSet scratch = this.scratch.get();
+        boolean first = true;
+        for (PatternPrefix q = p; q.length() > 0; q = q.parent()) {
+            if (q.length() - 1 != skip) {
+                if (first) {
+                    scratch.copyFrom(bitStrings.get(q.last()));
+                    first = false;
+                } else {
+                    scratch.and(bitStrings.get(q.last()));
+                }
             }
         }
-        return a.bitCount();
+        return scratch.cardinality();
     }
 
     /**
@@ -320,7 +454,7 @@ public class TopK extends Model {
      * class, {@code false} into the negative one.
      * @return
      */
-    public boolean acceptPattern(Pattern beta, int countD1, int countD2, int minCount, boolean positiveClass) {
+    public boolean acceptPattern(PatternPrefix beta, int countD1, int countD2, int minCount, boolean positiveClass) {
         boolean minimal = false;
         // check if the patter is a JEP
         if (positiveClass) {
@@ -334,10 +468,9 @@ public class TopK extends Model {
         // Check minimality if the pattern is a JEP
         if (minimal && beta.length() > 1) {
             int beta_count = getPatternCount(beta, !positiveClass);
-            for (Item it : beta.getItems()) {
-                Pattern other = beta.clone();
-                other.drop(it);
-                if (beta_count >= getPatternCount(other, !positiveClass)) {
+            for (int i = 0; i < beta.length(); i++) {
+                // the counts of beta without its i-th item
+                if (beta_count >= getPatternCount(beta, i, !positiveClass)) {
                     minimal = false;
                     break;
                 }
@@ -351,22 +484,22 @@ public class TopK extends Model {
      * visited or not.
      *
      * @param beta The pattern to check
-     * @param entry The actual node
+     * @param countD1 The counts for D1 of the actual entry
      * @return
      */
-    public boolean visitSubTree(Pattern beta, Entry entry) {
+    public boolean visitSubTree(PatternPrefix beta, int countD1) {
         boolean minimalD1 = false;
         // check if child node has minimal counts
-        if (entry.getCountD1() >= minPosCount) {
+        if (countD1 >= minPosBound.get()) {
             minimalD1 = true;
         }
 
         // check minimality of the pattern
         if (beta.length() > 1 && (minimalD1)) {
-            for (Item it : beta.getItems()) {
-                Pattern other = beta.clone();
-                other.drop(it);
-                if (minimalD1 && getPatternCount(beta, false) >= getPatternCount(other, false)) {
+            int beta_count = getPatternCount(beta, false);
+            for (int i = 0; i < beta.length(); i++) {
+                // the counts of beta without its i-th item
+                if (minimalD1 && beta_count >= getPatternCount(beta, i, false)) {
                     minimalD1 = false;
                 }
 
@@ -379,4 +512,18 @@ public class TopK extends Model {
         return minimalD1;
     }
 
+    /**
+     * A pattern accepted by a mining task, with its counts in D1.
+     */
+    private static class Candidate {
+
+        private final PatternPrefix pattern;
+        private final int countD1;
+
+        Candidate(PatternPrefix pattern, int countD1) {
+            this.pattern = pattern;
+            this.countD1 = countD1;
+        }
+    }
+
 }
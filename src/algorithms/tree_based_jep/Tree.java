@@ -25,6 +25,7 @@ package algorithms.tree_based_jep;
 
 import java.util.ArrayList;
 import framework.deprecated.Item;
+import framework.utils.LongBitSet;
 
 /**
  *
@@ -35,24 +36,35 @@ import framework.deprecated.Item;
 public class Tree {
 
     /**
-     * @param aSimpleItems the simpleItems to set
+     * The state shared by all the nodes of a tree: the order of the items and
+     * the node-link structure.
      */
-    public static void setSimpleItems(ArrayList<Item> aSimpleItems) {
-        simpleItems = aSimpleItems;
-    }
+    private static class Header {
 
-    /**
-     * @return the node_link
-     */
-    public static ArrayList<Tree> getNode_link() {
-        return node_link;
-    }
+        /**
+         * The items ordered as they are inserted in the tree.
+         */
+        private final ArrayList<Item> simpleItems;
 
-    /**
-     * @return the simpleItems
-     */
-    public static ArrayList<Item> getSimpleItems() {
-        return simpleItems;
+        /**
+         * The position of each item in {@code simpleItems}, indexed by the item
+         * id.
+         */
+        private final int[] ranks;
+
+        /**
+         * The first and last node of the node-link of each item, indexed by the
+         * rank of the item.
+         */
+        private final Tree[] firstLinks;
+        private final Tree[] lastLinks;
+
+        private Header(ArrayList<Item> simpleItems) {
+            this.simpleItems = simpleItems;
+            this.ranks = rankItems(simpleItems);
+            this.firstLinks = new Tree[simpleItems.size()];
+            this.lastLinks = new Tree[simpleItems.size()];
+        }
     }
 
     private boolean root;
@@ -60,14 +72,31 @@ public class Tree {
     private Item item;
     private int[] count;
     private Tree parent;  // link to the parent node.
+    private Tree firstNode;  // the root node of the node's component tree.
+    private LongBitSet pathItems;  // the ids of the items from this node up to the root of the component tree (excluded).
     private Tree nextEqual;
-    private boolean visited;
+    private int visitOrder;  // position of the node in the mining order, -1 if it is not mined.
+    private int[] minedCount;  // the count when the node is mined.
+    private final Header header;
 
-    private static ArrayList<Tree> node_link;
-    private static ArrayList<Item> simpleItems;
+    /**
+     * Creates the root of an empty tree.
+     *
+     * @param simpleItems The items ordered as they are going to be inserted.
+     * @param nClasses The number of classes
+     */
+    public Tree(ArrayList<Item> simpleItems, int nClasses) {
+        visitOrder = -1;
+        root = true;
+        children = new ArrayList<>();
+        item = null;
+        count = new int[nClasses];
+        parent = null;
+        header = new Header(simpleItems);
+    }
 
     public Tree(Item item, int clas, int nClasses, Tree parent) {
-        visited = false;
+        visitOrder = -1;
         root = false;
         children = new ArrayList<>();
         this.item = item;
@@ -77,37 +106,70 @@ public class Tree {
         }
         count[clas]++;
         this.parent = parent;
+        this.header = parent != null ? parent.header : null;
+        this.firstNode = parent == null || parent.isRoot() ? this : parent.firstNode;
     }
 
     /**
-     * Initialise the node_link data structure
-     * @param size 
+     * Returns the position of each item in the given list, indexed by the id of
+     * the item.
+     *
+     * @param simpleItems The ordered items
+     * @return
      */
-    public static void initializeNodeLinks(int size) {
-        node_link = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            getNode_link().add(null);
+    public static int[] rankItems(ArrayList<Item> simpleItems) {
+        int maxId = -1;
+        for (Item it : simpleItems) {
+            maxId = Math.max(maxId, it.getItemID());
         }
+        int[] ranks = new int[maxId + 1];
+        for (int i = 0; i < simpleItems.size(); i++) {
+            ranks[simpleItems.get(i).getItemID()] = i;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return the items ordered as they are inserted in the tree
+     */
+    public ArrayList<Item> getSimpleItems() {
+        return header.simpleItems;
+    }
+
+    /**
+     * Returns the position of the item in the order of the tree.
+     *
+     * @param a The item
+     * @return
+     */
+    public int getIndexOf(Item a) {
+        return header.ranks[a.getItemID()];
+    }
+
+    /**
+     * Returns the first node of the node-link of the given item. The rest of
+     * the nodes are reached by means of {@link #getNextEqual()}.
+     *
+     * @param a The item
+     * @return The node, or null if the item is not in the tree
+     */
+    public Tree getNodeLink(Item a) {
+        return header.firstLinks[getIndexOf(a)];
     }
 
-    /** 
+    /**
      * Adds the node at the end of the item's node link table.
+     *
      * @param node
-     * @return 
-     */
-    public static boolean addInNodeLink(Tree node) {
-        int index = getSimpleItems().indexOf(node.item);
-        if (index > -1) {
-            if (getNode_link().get(index) == null) {
-                getNode_link().set(index, node);
-                return true;
-            }
+     */
+    private void addInNodeLink(Tree node) {
+        int index = getIndexOf(node.item);
+        if (header.firstLinks[index] == null) {
+            header.firstLinks[index] = node;
+        } else {
+            header.lastLinks[index].nextEqual = node;
         }
-        return false;
-    }
-
-    public static int getIndexOf(Item a) {
-        return getSimpleItems().indexOf(a);
+        header.lastLinks[index] = node;
     }
 
     /**
@@ -155,86 +217,71 @@ public class Tree {
     /**
      * Inserts an instance into the tree
      *
-     * @param it The instances
+     * @param it The instance, with its items sorted as the items of the tree.
      * @param clas The class of the instance
-     * @param simpleItems The items ordered in descending order.
      */
-    public void insert_tree(ArrayList<Item> it, int clas, ArrayList<Item> simpleItems) {
-        insert_tree(it, clas, this, simpleItems);
-    }
-
-    /**
-     * Private function to insert an instance into the tree
-     *
-     * @param it the instance
-     * @param clas the class of the instance
-     * @param node The node to insert the item.
-     */
-    private void insert_tree(ArrayList<Item> it, int clas, Tree node, ArrayList<Item> simpleItems) {
-        this.nextEqual = null;
-        // if "it" contains a child
-        if (!it.isEmpty()) {
-            ArrayList<Item> clone = (ArrayList<Item>) it.clone();
-            boolean exist = false;
-            int children_index = -1;
-            // search if the item exist in node's children.
-            for (int i = 0; i < node.children.size() && !exist; i++) {
-                if (node.children.get(i).item.equals(it.get(0))) {
-                    exist = true;
-                    children_index = i;
+    public void insert_tree(ArrayList<Item> it, int clas) {
+        Tree node = this;
+        for (Item item : it) {
+            int rank = getIndexOf(item);
+            // search if the item exist in node's children, that are sorted according to the items order.
+            int low = 0;
+            int high = node.children.size() - 1;
+            Tree child = null;
+            while (low <= high && child == null) {
+                int mid = (low + high) >>> 1;
+                int midRank = getIndexOf(node.children.get(mid).item);
+                if (midRank < rank) {
+                    low = mid + 1;
+                } else if (midRank > rank) {
+                    high = mid - 1;
+                } else {
+                    child = node.children.get(mid);
                 }
             }
 
-            if (!exist) {
-                // add new children
-                Tree t = new Tree(it.get(0), clas, 2, node);
-                node.children.add(t);
-                int a = simpleItems.indexOf(t.item);
-                // sort children according to the items order
-                node.children.sort((Tree o1, Tree o2) -> {
-                    int i1 = simpleItems.indexOf(o1.item);
-                    int i2 = simpleItems.indexOf(o2.item);
-                    if (i1 > i2) {
-                        return 1;
-                    } else if (i1 < i2) {
-                        return -1;
-                    } else {
-                        return 0;
-                    }
-                });
-                children_index = node.children.indexOf(t);
-                // Add node the node-link structure
-                if (!Tree.addInNodeLink(t)) {
-                    // if there are an elemente on the node-head list, get the last element and set the nextEqual to this one.
-                    int index = simpleItems.indexOf(t.item);
-                    Tree first = node_link.get(index);
-                    while (first.getNextEqual() != null) {
-                        first = first.getNextEqual();
-                    }
-                    first.nextEqual = t;
-                }
-
+            if (child == null) {
+                // add new children in its position and in the node-link structure
+                child = new Tree(item, clas, 2, node);
+                node.children.add(low, child);
+                addInNodeLink(child);
             } else {
                 // node exists, incremets count of the children.
-                node.children.get(children_index).count[clas]++;
+                child.count[clas]++;
             }
-            clone.remove(0);
-            insert_tree(clone, clas, node.children.get(children_index), simpleItems);
+            node = child;
         }
     }
 
     /**
-     * @return the visited
+     * Marks the node as mined in the given position of the mining order, and
+     * keeps its current count to be used when it is mined.
+     *
+     * @param order The position of the node in the mining order
+     */
+    public void visited(int order) {
+        this.visitOrder = order;
+        this.minedCount = count.clone();
+    }
+
+    /**
+     * Checks whether this node is mined before the given one.
+     *
+     * @param other A node marked as mined
+     * @return
      */
-    public boolean isVisited() {
-        return visited;
+    public boolean isVisitedBefore(Tree other) {
+        return visitOrder >= 0 && visitOrder < other.visitOrder;
     }
 
     /**
-     * @param visited the visited to set
+     * Returns the count the node has when it is mined.
+     *
+     * @param pos The class
+     * @return
      */
-    public void visited() {
-        this.visited = true;
+    public int getMinedCount(int pos) {
+        return minedCount[pos];
     }
 
     /**
@@ -244,6 +291,32 @@ public class Tree {
         return nextEqual;
     }
 
+    /**
+     * @return the root node of the node's component tree
+     */
+    public Tree getFirstNode() {
+        return firstNode;
+    }
+
+    /**
+     * Returns the ids of the items in the path from this node up to the root
+     * of its component tree, which is not included. The set is computed from
+     * the parent's one the first time it is requested, and it must not be
+     * modified.
+     *
+     * @return
+     */
+    public LongBitSet getPathItems() {
+        if (pathItems == null) {
+            pathItems = new LongBitSet(header.ranks.length);
+            if (firstNode != this) {
+                pathItems.copyFrom(parent.getPathItems());
+                pathItems.set(item.getItemID());
+            }
+        }
+        return pathItems;
+    }
+
     /**
      * @return the parent
      */
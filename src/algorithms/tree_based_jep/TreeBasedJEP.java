@@ -27,8 +27,12 @@ import framework.GUI.Model;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javafx.util.Pair;
 import keel.Dataset.Attribute;
 import keel.Dataset.Instance;
@@ -37,6 +41,7 @@ import sun.misc.REException;
 import framework.deprecated.Item;
 import framework.deprecated.Pattern;
 import framework.deprecated.Utils;
+import framework.utils.LongBitSet;
 
 /**
  *
@@ -63,13 +68,14 @@ public class TreeBasedJEP extends Model {
 
         // generate and mine the tree for each class
         long init_time = System.currentTimeMillis();
+        // The set removes the duplicated patterns keeping the order they are found.
+        LinkedHashSet<framework.items.Pattern> jeps = new LinkedHashSet<>();
         for (int i = 0; i < numClasses; i++) {
             // Generate Tree for class i and mine patterns of this tree
             generateTree(training, ordering, i, alpha);
-            mineTree(i, prune);
+            jeps.addAll(mineTree(i, prune));
         }
-        System.out.println("Removing duplicated patterns...");
-        patterns = Utils.removeDuplicates(patterns);
+        patterns = new ArrayList<>(jeps);
         System.out.println("Execution time: " + (System.currentTimeMillis() - init_time) / 1000.0 + " seconds");
         System.out.println("Number of patterns: " + super.patterns.size());
     }
@@ -186,44 +192,76 @@ public class TreeBasedJEP extends Model {
                 sortedFrequency.removeAll(simpleItems);
                 simpleItems.addAll(sortedFrequency);
                 // Sort instances
+                int[] ranks = Tree.rankItems(simpleItems);
                 instances.forEach((t) -> {
-                    t.getKey().sort((o1, o2) -> {
-                        int i1 = simpleItems.indexOf(o1);
-                        int i2 = simpleItems.indexOf(o2);
-                        if (i1 > i2) {
-                            return 1;
-                        } else if (i1 < i2) {
-                            return -1;
-                        } else {
-                            return 0;
-                        }
-                    });
+                    t.getKey().sort((o1, o2) -> Integer.compare(ranks[o1.getItemID()], ranks[o2.getItemID()]));
                 });
         }
 
         // Now that we have the instances sorted, generate the tree
-        Tree.setSimpleItems(simpleItems);
-        Tree.initializeNodeLinks(simpleItems.size());
-        root = new Tree(null, 0, 2, null);
-        root.setRoot(true);
+        root = new Tree(simpleItems, 2);
         instances.forEach((inst) -> {
             // Insert the item from the root.
-            root.insert_tree(inst.getKey(), inst.getValue(), simpleItems);
+            root.insert_tree(inst.getKey(), inst.getValue());
         });
     }
 
     /**
      * Public method to mine the tree.
+     *
+     * The component trees are mined in parallel. As the mining of each one
+     * depends on the counts relocated from the previous ones and on the nodes
+     * already visited, first the nodes are numbered in the order they would be
+     * mined and their counts are kept just before relocating them. The JEPs
+     * are returned in the same order as if the component trees were mined one
+     * after another.
+     *
      * @param clas The class to look for patterns
-     * @param threshold  The threshold to prune patterns (<= 0 means no prune)
+     * @param threshold The threshold to prune patterns (<= 0 means no prune)
+     * @return The JEPs found
      */
-    public void mineTree(int clas, int threshold) {
-        for (Tree componentTree : root.getChildren()) {
-            // mine the component tre
-            mineTree(componentTree, new Pattern(new ArrayList<Item>(), clas), 0, threshold);
-            // When mined the component tree, apply the "relocate_branches" procedure.
+    public ArrayList<framework.items.Pattern> mineTree(int clas, int threshold) {
+        ArrayList<Tree> componentTrees = root.getChildren();
+        int order = 0;
+        for (Tree componentTree : componentTrees) {
+            order = visit(componentTree, 0, threshold, order);
+            // When visited the component tree, apply the "relocate_branches" procedure.
             relocate_branches(componentTree);
         }
+
+        List<ArrayList<framework.items.Pattern>> found = IntStream.range(0, componentTrees.size()).parallel()
+                .mapToObj(i -> {
+                    // mine the component tree. The instances of the class are counted in position 0 of the tree.
+                    ArrayList<framework.items.Pattern> jeps = new ArrayList<>();
+                    mineTree(componentTrees.get(i), new Pattern(new ArrayList<Item>(), clas), 0, threshold, jeps);
+                    return jeps;
+                })
+                .collect(Collectors.toList());
+        ArrayList<framework.items.Pattern> result = new ArrayList<>();
+        for (ArrayList<framework.items.Pattern> jeps : found) {
+            result.addAll(jeps);
+        }
+        return result;
+    }
+
+    /**
+     * Numbers the nodes of a component tree that are going to be mined, in
+     * the order the mining visits them.
+     *
+     * @param node The actual node of the tree
+     * @param length The length of the pattern of the node's parent
+     * @param threshold The threshold to prune the tree (<= 0 means no prune)
+     * @param order The position of the node in the mining order
+     * @return The position of the next node to visit
+     */
+    private int visit(Tree node, int length, int threshold, int order) {
+        if (length <= threshold || threshold <= 0) {
+            node.visited(order++);
+            for (Tree child : node.getChildren()) {
+                order = visit(child, length + 1, threshold, order);
+            }
+        }
+        return order;
     }
 
     /**
@@ -232,45 +270,45 @@ public class TreeBasedJEP extends Model {
      * @param p The actual pattern
      * @param clas The class to look for patterns
      * @param threshold The threshold to prune the tree (<= 0 means no prune)
+     * @param jeps The list where the JEPs found are added
      */
-    private void mineTree(Tree node, Pattern p, int clas, int threshold) {
+    private void mineTree(Tree node, Pattern p, int clas, int threshold, ArrayList<framework.items.Pattern> jeps) {
         if (node != null && (p.getItems().size() <= threshold || threshold <= 0)) {
-            node.visited();
             int negativeClass = clas == 0 ? 1 : 0;
-            Tree CTRoot = getFirstNode(node);
+            Tree CTRoot = node.getFirstNode();
             Pattern aux = p.clone();
             // Add the node's item to the possible JEP
             aux.add(node.getItem());
             // Check if pattern p is a potential JEP
-            if (node.getCount(clas) != 0 && node.getCount(negativeClass) == 0) {
+            if (node.getMinedCount(clas) != 0 && node.getMinedCount(negativeClass) == 0) {
                 // this is a JEP. Gets negative instances from this one.
                 if (!node.getItem().equals(CTRoot.getItem())) {
-                    ArrayList<Pattern> negativeInstances = findNegativeInstances(node, CTRoot.getItem(), negativeClass);
+                    ArrayList<LongBitSet> negativeInstances = findNegativeInstances(node);
                     // Now, apply border_Diff if neccesary
                     if (negativeInstances.isEmpty()) {
                         // If there are no such negative transactions, adds as JEP a pattern with the first and last elements.
                         ArrayList<Item> items = new ArrayList<>();
                         items.add(aux.getItems().get(0));
                         items.add(aux.getItems().get(aux.getItems().size() - 1));
-                        super.patterns.add(Utils.castToNewPatternFormat(new Pattern(items, aux.getClase())));
+                        jeps.add(Utils.castToNewPatternFormat(new Pattern(items, aux.getClase())));
                     } else {
                         // apply border_diff
                         Pattern borderDiff = borderDiff(aux, negativeInstances);
                         if (!borderDiff.getItems().isEmpty()) {
-                            super.patterns.add(Utils.castToNewPatternFormat(borderDiff));
+                            jeps.add(Utils.castToNewPatternFormat(borderDiff));
                         }
                     }
                 } else {
                     Pattern p1 = new Pattern(new ArrayList<Item>(), clas);
                     p1.add(node.getItem());
-                    super.patterns.add(Utils.castToNewPatternFormat(p1));
+                    jeps.add(Utils.castToNewPatternFormat(p1));
                 }
 
             }
 
             // Recursive call for each node's child
             for (Tree child : node.getChildren()) {
-                mineTree(child, aux, clas, threshold);
+                mineTree(child, aux, clas, threshold, jeps);
             }
 
         }
@@ -280,30 +318,18 @@ public class TreeBasedJEP extends Model {
     /**
      * Finds the negative instances related to {@code target} node, i.e., shares the same base node and the same root.
      * @param target
-     * @param root
-     * @param clas
-     * @return 
+     * @return The ids of the items of each negative instance
      */
-    private ArrayList<Pattern> findNegativeInstances(Tree target, Item root, int clas) {
-        Item it = target.getItem();
-        ArrayList<Tree> node_link = Tree.getNode_link();
-        int index = Tree.getSimpleItems().indexOf(it);
-        ArrayList<Pattern> result = new ArrayList<>();
+    private ArrayList<LongBitSet> findNegativeInstances(Tree target) {
+        ArrayList<LongBitSet> result = new ArrayList<>();
 
         Tree aux = target.getNextEqual();
         while (aux != null) {
-            if (!aux.isVisited()) {
+            if (!aux.isVisitedBefore(target)) {
                 // Search for instances using side links
-                if (getFirstNode(aux).getItem().equals(root) && !aux.equals(target)) {
+                if (aux.getFirstNode() == target.getFirstNode() && !aux.equals(target)) {
                     // If the node we are examining shares the root, is a negative instance.
-                    Pattern p = new Pattern(new ArrayList<Item>(), clas);
-                    Tree aux2 = aux;
-                    while (!aux2.getParent().isRoot()) {
-                        p.add(aux2.getItem());
-                        aux2 = aux2.getParent();
-                    }
-                    // add the reversed pattern
-                    result.add(p.reverse());
+                    result.add(aux.getPathItems());
                 } else {
                     // If the next does not share the same root, it means that
                     // it is on another component tree, so, consecuent equals nodes not share this root anymore. So, prune.
@@ -316,45 +342,39 @@ public class TreeBasedJEP extends Model {
         return result;
     }
 
-   
-
     /**
-     * Gets the root node of the node's component tree.
-     *
-     * @param node
-     * @return
-     */
-    private Tree getFirstNode(Tree node) {
-        Tree next = node;
-
-        while (!next.getParent().isRoot()) {
-            next = next.getParent();
-        }
-
-        return next;
-    }
-
-    
-    /**
-     * Applies the border-diff procedure, i.e., it returns a patterns with the items in {@code target} not present in target.
+     * Applies the border-diff procedure, i.e., it returns a patterns with the items in {@code target} not present in each border.
+     * The items are added in the order they appear in the differences with each border.
      * @param target
-     * @param border
+     * @param border The ids of the items of each border
      * @return 
      */
-    private Pattern borderDiff(Pattern target, ArrayList<Pattern> border) {
-
-        Pattern result = new Pattern(new ArrayList<Item>(), target.getClase());
-
-        //Join with the first border
-        result = result.merge(target.difference(border.get(0)));
-
-        //Join with other borders
-        for (int i = 1; i < border.size(); i++) {
-            result = result.merge(target.difference(border.get(i)));
+    private Pattern borderDiff(Pattern target, ArrayList<LongBitSet> border) {
+        ArrayList<Item> items = new ArrayList<>();
+        int size = border.get(0).size();
+        LongBitSet targetItems = new LongBitSet(size);
+        for (Item it : target.getItems()) {
+            targetItems.set(it.getItemID());
+        }
+        LongBitSet added = new LongBitSet(size);
+        LongBitSet diff = new LongBitSet(size);
+
+        for (LongBitSet b : border) {
+            // Items of the difference with the border that are not in the result yet
+            diff.copyFrom(targetItems);
+            diff.andNot(b);
+            diff.andNot(added);
+            if (!diff.isEmpty()) {
+                for (Item it : target.getItems()) {
+                    if (diff.get(it.getItemID())) {
+                        items.add(it);
+                    }
+                }
+                added.or(diff);
+            }
         }
 
-        return result;
-
+        return new Pattern(items, target.getClase());
     }//
 
     /**
@@ -58,6 +58,7 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSpinner;
+import javax.swing.JTextField;
 import javax.swing.JTextPane;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
@@ -1353,6 +1354,11 @@ public class GUI extends javax.swing.JFrame {
                         comboBoxModel.setSelectedItem(values.get(Integer.parseInt(nodeParam.getElementsByTagName("default").item(0).getTextContent()) - 1));
                         JComboBox combo = new JComboBox(comboBoxModel);
                         ParametersPanel.add(combo);
+                        break;
+
+                    case "string":
+                        ParametersPanel.add(new JLabel(nodeParam.getElementsByTagName("name").item(0).getTextContent() + ": "));
+                        ParametersPanel.add(new JTextField(nodeParam.getElementsByTagName("default").item(0).getTextContent()));
 
                 }
 
@@ -1394,6 +1400,9 @@ public class GUI extends javax.swing.JFrame {
                 } catch (java.lang.ClassCastException ex) {
                     parameters.put(key.substring(0, key.length() - 2), Double.toString((Double) element.getValue()));
                 }
+            } else if (ParametersPanel.getComponent(i) instanceof JTextField) {
+                JTextField element = (JTextField) ParametersPanel.getComponent(i);
+                parameters.put(key.substring(0, key.length() - 2), element.getText());
             } else if (ParametersPanel.getComponent(i) instanceof JLabel) {
                 JLabel element = (JLabel) ParametersPanel.getComponent(i);
                 key = element.getText();
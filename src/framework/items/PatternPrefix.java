@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 angel.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package framework.items;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An immutable pattern represented as a linked list of items from its last
+ * item to its first one. Extending a prefix with a new item only creates a
+ * new link, which shares all the previous items with the prefix, so the
+ * mining methods can generate candidates without copying any list. A
+ * {@link Pattern} is only built when the candidate is returned.
+ *
+ * @author Ángel M. García Vico <agvico@ujaen.es>
+ * @version 1.0
+ * @since JDK 1.8
+ */
+public final class PatternPrefix {
+
+    /**
+     * The empty pattern, from where all the prefixes are built.
+     */
+    public static final PatternPrefix EMPTY = new PatternPrefix(null, null);
+
+    /**
+     * The last item of the pattern.
+     */
+    private final Item item;
+
+    /**
+     * The pattern without its last item.
+     */
+    private final PatternPrefix parent;
+
+    /**
+     * The number of items of the pattern.
+     */
+    private final int length;
+
+    private PatternPrefix(PatternPrefix parent, Item item) {
+        this.parent = parent;
+        this.item = item;
+        this.length = parent == null ? 0 : parent.length + 1;
+    }
+
+    /**
+     * Returns the pattern that results of adding the given item at the end of
+     * this one. This pattern is not modified.
+     *
+     * @param item The item to add
+     * @return The new pattern
+     */
+    public PatternPrefix extend(Item item) {
+        return new PatternPrefix(this, item);
+    }
+
+    /**
+     * @return the number of items of the pattern
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the last item of the pattern, or null if it is empty
+     */
+    public Item last() {
+        return item;
+    }
+
+    /**
+     * @return the pattern without its last item, or null if it is empty
+     */
+    public PatternPrefix parent() {
+        return parent;
+    }
+
+    /**
+     * Builds the pattern with the items of this prefix, in the order they
+     * were added.
+     *
+     * @param clase The class of the pattern
+     * @return
+     */
+    public Pattern toPattern(int clase) {
+        Item[] its = new Item[length];
+        for (PatternPrefix p = this; p.length > 0; p = p.parent) {
+            its[p.length - 1] = p.item;
+        }
+        return new Pattern(new ArrayList<>(Arrays.asList(its)), clase);
+    }
+}
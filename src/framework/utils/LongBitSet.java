@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 angel.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package framework.utils;
+
+import java.util.Arrays;
+
+/**
+ * A mutable set of bits of fixed size, packed in 64-bit words. Unlike
+ * {@code BigInteger}, the bitwise operations are done in place, so a bit set
+ * can be used as a scratch buffer that is reused for many operations without
+ * allocating new objects.
+ *
+ * @author Ángel M. García-Vico
+ * @version 1.0
+ * @since JDK 1.8
+ */
+public class LongBitSet {
+
+    /**
+     * The words of the set. Bit {@code i} is stored in the bit
+     * {@code i % 64} of the word {@code i / 64}.
+     */
+    private final long[] words;
+
+    /**
+     * The number of bits of the set.
+     */
+    private final int size;
+
+    /**
+     * Creates a bit set with all its bits set to 0.
+     *
+     * @param size The number of bits of the set
+     */
+    public LongBitSet(int size) {
+        this.size = size;
+        this.words = new long[wordsFor(size)];
+    }
+
+    /**
+     * Returns the number of words needed to store the given number of bits.
+     *
+     * @param size The number of bits
+     * @return
+     */
+    public static int wordsFor(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * @return the number of bits of the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the words of the set. They must not be modified.
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * Sets the given bit to 1
+     *
+     * @param i The bit
+     */
+    public void set(int i) {
+        words[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Sets the given bit to 0
+     *
+     * @param i The bit
+     */
+    public void clear(int i) {
+        words[i >>> 6] &= ~(1L << i);
+    }
+
+    /**
+     * Sets all the bits to 0
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Returns the value of the given bit
+     *
+     * @param i The bit
+     * @return {@code true} if the bit is set to 1
+     */
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @return the number of bits set to 1
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first bit set to 1 from the given one
+     * (inclusive).
+     *
+     * @param from The first bit to check
+     * @return The index of the bit, or -1 if there are no more bits set to 1.
+     */
+    public int nextSetBit(int from) {
+        int w = from >>> 6;
+        if (w >= words.length) {
+            return -1;
+        }
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * Copies the bits of the given set, of the same size, into this one.
+     *
+     * @param other The set to copy
+     */
+    public void copyFrom(LongBitSet other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * Intersects in place this set with the given one, of the same size.
+     *
+     * @param other The other set
+     */
+    public void and(LongBitSet other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Unites in place this set with the given one, of the same size.
+     *
+     * @param other The other set
+     */
+    public void or(LongBitSet other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Removes in place from this set the bits set in the given one, of the same
+     * size.
+     *
+     * @param other The other set
+     */
+    public void andNot(LongBitSet other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Returns the number of bits set to 1 in the intersection of this set and
+     * the given one, without modifying any of them.
+     *
+     * @param other The other set
+     * @return
+     */
+    public int andCardinality(LongBitSet other) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bits set to 1 in the intersection of this set and
+     * the two given ones, without modifying any of them.
+     *
+     * @param other The second set
+     * @param another The third set
+     * @return
+     */
+    public int andCardinality(LongBitSet other, LongBitSet another) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & other.words[i] & another.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether all the bits set in this set are also set in the given
+     * one.
+     *
+     * @param other The other set
+     * @return
+     */
+    public boolean isSubsetOf(LongBitSet other) {
+        for (int i = 0; i < words.length; i++) {
+            if ((words[i] & ~other.words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if no bit is set to 1
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LongBitSet)) {
+            return false;
+        }
+        LongBitSet o = (LongBitSet) other;
+        return size == o.size && Arrays.equals(words, o.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder("{");
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            if (str.length() > 1) {
+                str.append(", ");
+            }
+            str.append(i);
+        }
+        return str.append("}").toString();
+    }
+}
@@ -5,11 +5,9 @@
  */
 package framework.utils.bsc_tree;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
 import java.util.Stack;
-import javafx.util.Pair;
 
 /**
  * Class that represents a Bit-String Compression Tree (BSC-Tree) This class
@@ -21,10 +19,56 @@ import javafx.util.Pair;
 public class BSCTree {
 
     /**
-     * The root of the BSCTree
+     * The path codes of the 1-bit leaves of the tree, in the order they are
+     * visited from left to right. Each code is packed in a long: the bits of
+     * the path, where 0 means left and 1 right, are stored from the most
+     * significant bit and the length of the path in the {@code LENGTH_BITS}
+     * least significant ones. Thus, comparing two codes as unsigned numbers
+     * gives their lexicographic order.
      */
-    private BSCTreeNode root;
-    private ArrayList<Pair<String, Integer>> pathCodes;
+    private long[] pathCodes;
+
+    /**
+     * The 1-bit count of each path code.
+     */
+    private int[] counts;
+
+    /**
+     * The number of bits used to store the length of a path code.
+     */
+    private static final int LENGTH_BITS = 6;
+
+    /**
+     * The maximum length of a path code.
+     */
+    private static final int MAX_LENGTH = 64 - LENGTH_BITS;
+
+    /**
+     * The buffers used by each thread to perform the ANDing of several trees
+     * without allocating intermediate results.
+     */
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Two pairs of path codes and counts arrays that are alternately used as
+     * the input and the output of the ANDs.
+     */
+    private static class Workspace {
+
+        long[][] codes = {new long[16], new long[16]};
+        int[][] counts = {new int[16], new int[16]};
+
+        /**
+         * Makes sure that the given buffer can store {@code size} path codes.
+         */
+        void ensureCapacity(int buffer, int size) {
+            if (codes[buffer].length < size) {
+                int newSize = Math.max(size, 2 * codes[buffer].length);
+                codes[buffer] = Arrays.copyOf(codes[buffer], newSize);
+                counts[buffer] = Arrays.copyOf(counts[buffer], newSize);
+            }
+        }
+    }
 
     /**
      * Construct a BSC-Tree with the given bit string
@@ -32,17 +76,47 @@ public class BSCTree {
      * @param bitString The bit string
      */
     public BSCTree(String bitString) {
-        generateTree(bitString, 2);
-        pathCodes = getPathCodes();
+        long[] words = new long[(bitString.length() + 63) >>> 6];
+        for (int i = 0; i < bitString.length(); i++) {
+            if (bitString.charAt(i) == '1') {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        setPathCodes(generateTree(words, bitString.length(), 2));
+    }
+
+    /**
+     * Construct a BSC-Tree with the given bit string, packed in 64-bit words.
+     * Bit {@code i} of the string is the bit {@code i % 64} of the word
+     * {@code i / 64}.
+     *
+     * @param words The words of the bit string
+     * @param numBits The length of the bit string
+     */
+    public BSCTree(long[] words, int numBits) {
+        setPathCodes(generateTree(words, numBits, 2));
+    }
+
+    /**
+     * Construct a BSC-Tree with the given path codes.
+     *
+     * @param pathCodes
+     * @param counts
+     */
+    private BSCTree(long[] pathCodes, int[] counts) {
+        this.pathCodes = pathCodes;
+        this.counts = counts;
     }
 
     /**
      * Generates the BSC-Tree
      *
-     * @param bitString
+     * @param words The words of the bit string
+     * @param numBits The length of the bit string
      * @param N
+     * @return The root of the tree
      */
-    private void generateTree(String bitString, int N) {
+    private BSCTreeNode generateTree(long[] words, int numBits, int N) {
         int L = 1;
         int BSL = (int) Math.pow(N, L - 1.0);
         char currentBitType;
@@ -50,8 +124,8 @@ public class BSCTree {
         Stack<BSCTreeNode> stack = new Stack<>();
         int pos = 0;
         //for(char bit : bitString.toCharArray()){
-        while (pos < bitString.length()) {
-            currentBitType = bitString.charAt(pos);
+        while (pos < numBits) {
+            currentBitType = (words[pos >>> 6] & (1L << pos)) != 0 ? '1' : '0';
             if (temporaryNode.numBits == 0) {
                 temporaryNode.setBitType(currentBitType);
             }
@@ -120,6 +194,7 @@ public class BSCTree {
         }
 
         // JOIN THE NODES AND CREATE THE TREE
+        BSCTreeNode root = null;
         while (!stack.empty()) {
             BSCTreeNode node1 = stack.pop();
             if (stack.empty()) {
@@ -147,6 +222,7 @@ public class BSCTree {
                 }
             }
         }
+        return root;
     }
 
     /**
@@ -164,63 +240,81 @@ public class BSCTree {
         return node1.getNodeLevel() == node2.getNodeLevel();
     }
 
-    public ArrayList<Pair<String, Integer>> getPathCodes() {
-        ArrayList<Pair<String, Integer>> result = new ArrayList<>();
-        getPathCodes(root, result, "");
-        return result;
+    /**
+     * Stores the path codes of the 1-bit leaves of the tree with the given
+     * root.
+     *
+     * @param root
+     */
+    private void setPathCodes(BSCTreeNode root) {
+        ArrayList<Long> codes = new ArrayList<>();
+        ArrayList<Integer> ones = new ArrayList<>();
+        getPathCodes(root, codes, ones, 0L, 0);
+        pathCodes = new long[codes.size()];
+        counts = new int[codes.size()];
+        for (int i = 0; i < pathCodes.length; i++) {
+            pathCodes[i] = codes.get(i);
+            counts[i] = ones.get(i);
+        }
     }
 
-    private void getPathCodes(BSCTreeNode node, ArrayList<Pair<String, Integer>> results, String pathCode) {
+    private void getPathCodes(BSCTreeNode node, ArrayList<Long> codes, ArrayList<Integer> ones, long path, int length) {
         if (node.getLeft() != null && node.getRight() != null) {
             // The node is not a leaf node
+            if (length == MAX_LENGTH) {
+                throw new IllegalStateException("The BSC-Tree is too deep to store its path codes.");
+            }
             // Go to the left child
-            getPathCodes(node.getLeft(), results, pathCode + "0");
+            getPathCodes(node.getLeft(), codes, ones, path, length + 1);
             // Go to the right child
-            getPathCodes(node.getRight(), results, pathCode + "1");
+            getPathCodes(node.getRight(), codes, ones, path | (1L << (63 - length)), length + 1);
         } else // The node is a leaf, check if it is a 1-bit leaf
         {
             if (node.getBitType() == '1') { // If 1-bit leaf node, store as a result
-                Pair pair = new Pair(pathCode, node.getOneBitCount());
-                results.add(pair);
+                codes.add(path | length);
+                ones.add(node.getOneBitCount());
             }
         }
     }
 
     /**
-     * Performs the and operation of {@code this} and {@code other} and return
-     * an array of path codes that is the resulting path code of result of
-     * applying the and operator to this BSC-Trees
+     * Performs the and operation of two arrays of path codes and stores the
+     * path codes of the resulting BSC-Tree in the third one, which must have
+     * room for {@code size1 + size2} codes.
      *
-     * @param other
-     * @return The path code of the "and" BSC-Tree
+     * @return The number of path codes of the result
      */
-    private ArrayList<Pair<String, Integer>> and(BSCTree other) {
-        ArrayList<Pair<String, Integer>> array3 = new ArrayList<>();
+    private static int and(long[] codes1, int[] counts1, int size1, long[] codes2, int[] counts2, int size2, long[] codes3, int[] counts3) {
         int index1, index2, index3;
         index1 = index2 = index3 = 0;
 
-        while (index1 < this.pathCodes.size() && index2 < other.pathCodes.size()) {
+        while (index1 < size1 && index2 < size2) {
+            long code1 = codes1[index1];
+            long code2 = codes2[index2];
             // If the path codes pointed by index1 and index2 are the same in both arrays 1 and 2
-            if (this.pathCodes.get(index1).getKey().equals(other.pathCodes.get(index2).getKey())) {
+            if (code1 == code2) {
                 // Store the path code pointed by index 1 in array3
-                array3.add(this.pathCodes.get(index1));
+                codes3[index3] = code1;
+                counts3[index3++] = counts1[index1];
                 index1++;
                 index2++;
-                index3++;
-            } else if (isSubCode(this.pathCodes.get(index1).getKey(), other.pathCodes.get(index2).getKey())) {
+            } else if (isSubCode(code1, code2)) {
                 // if the path code in array1 is the subcode of the pathcode of array2
-                array3.add(this.pathCodes.get(index1));
+                codes3[index3] = code1;
+                counts3[index3++] = counts1[index1];
                 index1++;
-            } else if (isSubCode(other.pathCodes.get(index2).getKey(), this.pathCodes.get(index1).getKey())) {
-                array3.add(other.pathCodes.get(index2));
+            } else if (isSubCode(code2, code1)) {
+                codes3[index3] = code2;
+                counts3[index3++] = counts2[index2];
                 index2++;
-            } else if (isLarger(this.pathCodes.get(index1).getKey(), other.pathCodes.get(index2).getKey())) {
+            } else if (Long.compareUnsigned(code2, code1) > 0) {
+                // the path code of array2 is larger
                 index1++;
             } else {
                 index2++;
             }
         }
-        return array3;
+        return index3;
     }
 
     /**
@@ -230,48 +324,28 @@ public class BSCTree {
      * @return
      */
     public int getCounts() {
-        int counts = 0;
-        for (Pair<String, Integer> pathCode : pathCodes) {
-            counts += pathCode.getValue();
+        int result = 0;
+        for (int count : counts) {
+            result += count;
         }
-        return counts;
+        return result;
     }
 
     /**
-     * It returns whether {@code pathCode1} is a subcode of {@code pathCode2}
+     * It returns whether {@code pathCode1} is a subcode of {@code pathCode2},
+     * i.e., whether {@code pathCode2} is a prefix of {@code pathCode1}
      *
      * @param pathCode1
      * @param pathCode2
      * @return
      */
-    private boolean isSubCode(String pathCode1, String pathCode2) {
-        if (pathCode2.length() > pathCode1.length()) {
+    private static boolean isSubCode(long pathCode1, long pathCode2) {
+        int length2 = (int) (pathCode2 & ((1L << LENGTH_BITS) - 1));
+        if (length2 > (int) (pathCode1 & ((1L << LENGTH_BITS) - 1))) {
             return false;
         }
-        String regex = "^" + pathCode2 + ".*";
-
-        return pathCode1.matches(regex);
-    }
-
-    /**
-     * It returns whether {@code pathCode2} is larger than {@code pathCode1}
-     *
-     * @param pathCode1
-     * @param pathCode2
-     * @return
-     */
-    private boolean isLarger(String pathCode1, String pathCode2) {
-        int minor = pathCode1.length() < pathCode2.length() ? pathCode1.length() : pathCode2.length();
-
-        for (int i = 0; i < minor; i++) {
-            if (pathCode2.charAt(i) > pathCode1.charAt(i)) {
-                return true;
-            } else if (pathCode2.charAt(i) < pathCode1.charAt(i)) {
-                return false;
-            }
-        }
-
-        return pathCode2.length() > pathCode1.length();
+        long mask = length2 == 0 ? 0 : -1L << (64 - length2);
+        return ((pathCode1 ^ pathCode2) & mask) == 0;
     }
 
     /**
@@ -285,21 +359,47 @@ public class BSCTree {
         if (trees.isEmpty()) {
             return this.getCounts();
         }
-        int result = 0;
-
-        BSCTree aux = new BSCTree("0");
-        aux.pathCodes = this.and(trees.get(0));
-        for (int i = 1; i < trees.size(); i++) {
-            aux.pathCodes = aux.and(trees.get(i));
+        Workspace ws = WORKSPACE.get();
+        long[] codes = this.pathCodes;
+        int[] ones = this.counts;
+        int size = this.pathCodes.length;
+        int buffer = 0;
+        for (BSCTree tree : trees) {
+            ws.ensureCapacity(buffer, size + tree.pathCodes.length);
+            size = and(codes, ones, size, tree.pathCodes, tree.counts, tree.pathCodes.length, ws.codes[buffer], ws.counts[buffer]);
+            codes = ws.codes[buffer];
+            ones = ws.counts[buffer];
+            buffer = 1 - buffer;
         }
 
-        for (Pair<String, Integer> pair : aux.pathCodes) {
-            result += pair.getValue();
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            result += ones[i];
         }
 
         return result;
     }
 
+    /**
+     * It performs the and operation of {@code this} and {@code other} and
+     * returns the counts of the result, without building it.
+     *
+     * @param other
+     * @return
+     */
+    public int andCounts(BSCTree other) {
+        Workspace ws = WORKSPACE.get();
+        ws.ensureCapacity(0, pathCodes.length + other.pathCodes.length);
+        int[] ones = ws.counts[0];
+        int size = and(pathCodes, counts, pathCodes.length, other.pathCodes, other.counts, other.pathCodes.length, ws.codes[0], ones);
+
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            result += ones[i];
+        }
+        return result;
+    }
+
     /**
      * It checks if the item that represents this BSC-Tree covers {@code other},
      * i.e., if the pathCode of {@code this.and(other)} is equal to
@@ -310,18 +410,20 @@ public class BSCTree {
      */
     public boolean covers(BSCTree other) {
         // Perfoms the and
-        ArrayList<Pair<String, Integer>> and = this.and(other);
-        
-        if (and.isEmpty() && !other.pathCodes.isEmpty()) {
-            return false;
-        }
-        if (and.size() != other.pathCodes.size()) {
+        Workspace ws = WORKSPACE.get();
+        ws.ensureCapacity(0, pathCodes.length + other.pathCodes.length);
+        long[] codes = ws.codes[0];
+        int[] ones = ws.counts[0];
+        int size = and(pathCodes, counts, pathCodes.length, other.pathCodes, other.counts, other.pathCodes.length, codes, ones);
+
+        if (size != other.pathCodes.length) {
             return false;
         }
-        
-        // Checks if the and pathCode is equal to the path code of other
-        for (Pair<String, Integer> pathCode : and) {
-            if (!other.pathCodes.contains(pathCode)) {
+
+        // Checks if the and pathCode is equal to the path code of other. Both
+        // are sorted, so they are compared position by position.
+        for (int i = 0; i < size; i++) {
+            if (codes[i] != other.pathCodes[i] || ones[i] != other.counts[i]) {
                 return false;
             }
         }
@@ -331,8 +433,9 @@ public class BSCTree {
     }
 
     public BSCTree And(BSCTree other) {
-        BSCTree result = new BSCTree("");
-        result.pathCodes = this.and(other);
-        return result;
+        long[] codes = new long[pathCodes.length + other.pathCodes.length];
+        int[] ones = new int[codes.length];
+        int size = and(pathCodes, counts, pathCodes.length, other.pathCodes, other.counts, other.pathCodes.length, codes, ones);
+        return new BSCTree(Arrays.copyOf(codes, size), Arrays.copyOf(ones, size));
     }
 }
@@ -26,12 +26,16 @@ package framework.utils.cptree;
 import algorithms.topk.*;
 import framework.items.Item;
 import framework.items.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
  * CP-Tree data structure that allows to store information about the counts of a
  * two-class problem, it needs the information about the support-ratio for each
- * item that appear in the dataset to perform the sorting of the nodes
+ * item that appear in the dataset to perform the sorting of the nodes. Each
+ * item is given a rank, which is its position in the support-ratio
+ * descending order, and the nodes work only with these ranks.
  *
  * @author Ángel M. García Vico <agvico@ujaen.es>
  * @version 1.0
@@ -44,6 +48,16 @@ public class CPTree {
      */
     private Node root;
 
+    /**
+     * The items, indexed by rank
+     */
+    private Item[] items;
+
+    /**
+     * The rank of each item
+     */
+    private HashMap<Item, Integer> ranks;
+
     /**
      * Default constructor. Creates an empty root node.
      */
@@ -51,14 +65,56 @@ public class CPTree {
         root = new Node();
     }
 
+    /**
+     * Sets the ordering of the items of the tree: descending support-ratio,
+     * and lexicographical order for ties. It must be called before inserting
+     * any pattern.
+     *
+     * @param supportRatio The support-ratio values for each item in the
+     * dataset. Only these items can be inserted.
+     */
+    public void setItemOrder(HashMap<Item, Double> supportRatio) {
+        ArrayList<Item> sorted = new ArrayList<>(supportRatio.keySet());
+        sorted.sort((o1, o2) -> {
+            int cmp = Double.compare(supportRatio.get(o2), supportRatio.get(o1));
+            return cmp != 0 ? cmp : o1.compareTo(o2);
+        });
+        items = sorted.toArray(new Item[sorted.size()]);
+        ranks = new HashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            ranks.put(items[i], i);
+        }
+    }
+
     /**
      * Adds this pattern on the CP-Tree. Updating the tree and its counts.
      *
      * @param pattern
-     * @param supportRatio The support-ratio values for each item in the dataset to perform sorting of nodes
      */
-    public void insert(Pattern pattern, HashMap<Item, Double> supportRatio) {
-        root.insert(pattern, root, supportRatio);
+    public void insert(Pattern pattern) {
+        int[] transaction = new int[pattern.length()];
+        for (int i = 0; i < transaction.length; i++) {
+            transaction[i] = ranks.get(pattern.get(i));
+        }
+        Arrays.sort(transaction);
+        root.insert(transaction, pattern.getClase());
+    }
+
+    /**
+     * Returns the item with the given rank
+     *
+     * @param rank
+     * @return
+     */
+    public Item getItem(int rank) {
+        return items[rank];
+    }
+
+    /**
+     * @return the number of items that can be inserted in the tree
+     */
+    public int getNumItems() {
+        return items.length;
     }
 
     /**
@@ -23,16 +23,13 @@
  */
 package framework.utils.cptree;
 
-import algorithms.topk.*;
-import framework.items.Item;
-import framework.items.NominalItem;
-import framework.items.Pattern;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
- * Class that represent a node of the CP-Tree
+ * Class that represent a node of the CP-Tree. The entries of the node are
+ * stored in primitive arrays sorted by the rank of their items in the
+ * support-ratio ordering of the tree, so an entry is found by binary search
+ * and two nodes are merged in a single linear pass.
  *
  * @author Ángel M. García Vico <agvico@ujaen.es>
  * @version 1.0
@@ -46,161 +43,266 @@ public class Node {
     protected int itemNumber;
 
     /**
-     * The set of node entry. Each entry contains an item, counts for D1 and D2,
-     * and a child Node.
+     * The rank of the item of each entry, in ascending order. Only the first
+     * {@code itemNumber} positions are used.
      */
-    private ArrayList<Entry> items;
-    
-    public boolean visited = false;
-    
+    private int[] ranks;
+
     /**
-     * Creates a node with the given item, and start to 1 the counts of the
-     * given class
-     *
-     * @param item
-     * @param clas
+     * The counts in D1 of each entry.
      */
-    public Node(Item item, int clas) {
-        this.items = new ArrayList<>();
-        this.items.add(new Entry(item, clas));
-        this.itemNumber = 1;
-    }
+    private int[] countsD1;
 
     /**
-     * Creates a new node with the specified item inside it with its counts equal to zero.
-     * @param item 
+     * The counts in D2 of each entry.
      */
-    public Node(Item item){
-        this.items = new ArrayList<>();
-        this.items.add(new Entry(item));
-        this.itemNumber = 1;
-    }
+    private int[] countsD2;
+
+    /**
+     * The child node of each entry, or null if its subtree is empty.
+     */
+    private Node[] children;
+
     /**
      * Default constructor creates an empty node
      */
     public Node() {
-        this.items = new ArrayList<>();
+        this(2);
+    }
+
+    /**
+     * Creates an empty node with room for the given number of entries
+     *
+     * @param capacity
+     */
+    private Node(int capacity) {
+        this.ranks = new int[capacity];
+        this.countsD1 = new int[capacity];
+        this.countsD2 = new int[capacity];
+        this.children = new Node[capacity];
         this.itemNumber = 0;
     }
 
-    public Object clone() {
-        Node a = new Node();
-        a.items = new ArrayList<>();
-        for (int i = 0; i < this.itemNumber; i++) {
-            a.items.add((Entry) this.items.get(i).clone());
+    /**
+     * Returns a deep copy of this node and its subtree.
+     *
+     * @return
+     */
+    public Node copy() {
+        Node a = new Node(Math.max(itemNumber, 1));
+        System.arraycopy(ranks, 0, a.ranks, 0, itemNumber);
+        System.arraycopy(countsD1, 0, a.countsD1, 0, itemNumber);
+        System.arraycopy(countsD2, 0, a.countsD2, 0, itemNumber);
+        for (int i = 0; i < itemNumber; i++) {
+            if (children[i] != null) {
+                a.children[i] = children[i].copy();
+            }
         }
-        a.setItemNumber(this.getItemNumber());
+        a.itemNumber = itemNumber;
         return a;
     }
 
-    /* @Override
-    public boolean equals(Object other) {
-        Node n = (Node) other;
-        return n.item.equals(this.item);
-    }*/
     /**
-     * Adds the given pattern recursively on the tree and sum its counts
+     * Adds the given transaction on the subtree of this node and sum its
+     * counts
      *
-     * @param p The pattern ordered in inverse order than the ordering given by
-     * < operator. @pa ram n The node where pattern will be inserted
+     * @param transaction The ranks of the items of the transaction, in
+     * ascending order.
+     * @param clase 0 if the transaction belongs to D1, 1 elsewhere.
      */
-    public void insert(Pattern p, Node n, HashMap<Item, Double> supportRatio) {
-
-        Item it = p.get(p.length() - 1);
-        Entry check = new Entry(it, 0);
-        int index = 0;
-        if (n.getItems().contains(check)) {
-            // get the node and sum it counts
-            index = n.getItems().indexOf(check);
+    public void insert(int[] transaction, int clase) {
+        Node n = this;
+        for (int cursor = 0; cursor < transaction.length; cursor++) {
+            int index = n.search(transaction[cursor]);
+            if (index < 0) {
+                // Insert the item in its place, so the entries keep sorted
+                index = -index - 1;
+                n.insertEntry(index, transaction[cursor]);
+            }
             // sum counts in D1 or D2
-            if (p.getClase() == 0) {
-                n.getItems().get(index).setCountD1(n.getItems().get(index).getCountD1() + 1);
+            if (clase == 0) {
+                n.countsD1[index]++;
             } else {
-                n.getItems().get(index).setCountD2(n.getItems().get(index).getCountD2() + 1);
+                n.countsD2[index]++;
             }
-        } else {
-            // Insert the item
-            n.getItems().add(new Entry(it, p.getClase()));
-            // incremen itemNumber
-            n.itemNumber++;
-            // sorts items and counts by support-ratio descending order
-            n.getItems().sort(Collections.reverseOrder((o1, o2) -> {
-                double gr1 = supportRatio.get(o1.getItem());
-                double gr2 = supportRatio.get(o2.getItem());
-                if (gr1 > gr2) {
-                    return 1;
-                } else if (gr1 < gr2) {
-                    return -1;
-                } else {
-                    return -1 * ((NominalItem) o1.getItem()).compareTo(o2.getItem());
+            // Go down, creating a new node if subtree is empty
+            if (cursor < transaction.length - 1) {
+                if (n.children[index] == null) {
+                    n.children[index] = new Node();
                 }
-            }));
-            index = n.getItems().indexOf(check);
-        }
-
-        // Go down recursively
-        Pattern a = p.clone();
-        a.getItems().remove(a.length() - 1);
-        if (!a.getItems().isEmpty()) {
-            if (n.getItems().get(index).getChild() == null) {
-                // create a new node if subtree is empty
-                n.getItems().get(index).setChild(new Node());
+                n = n.children[index];
             }
-            insert(a, n.getItems().get(index).getChild(), supportRatio);
         }
-
     }
 
     /**
      * Merges T1's nodes into {@code this}. {@code this} is updated (including new-node generation
      * and existing-node changes, but no nodes deletion), while T1 remains
-     * unchanged. The merge must be done T1 is the subtree and T2 is T1's
-     * parent. Else, the function would cause an stack overflow.
+     * unchanged. As the entries of both nodes are sorted by rank, they are
+     * merged from the end to the beginning in a single pass, accumulating
+     * the counts of the common ones. T1 may be a child of {@code this}.
      *
      * @param T1
-     * @param supportRatio
-     */
-    public void merge(Node T1, HashMap<Item, Double> supportRatio) {
-        // for each T1.item do
-        for (int i = 0; i < T1.itemNumber; i++) {
-            Entry item = T1.getItems().get(i);
-            //item.merged = true;
-            T1.getItems().get(i).merged =true;
-            int pos = -1;
-            // search T2 for T2.items[j] = T1.items[i]
-            if (this.getItems().contains(item)) {
-                // is T2.items[j] found
-                pos = this.getItems().indexOf(item);
-                this.getItems().get(pos).setCountD1(this.getItems().get(pos).getCountD1() + item.getCountD1());
-                this.getItems().get(pos).setCountD2(this.getItems().get(pos).getCountD2() + item.getCountD2());
+     */
+    public void merge(Node T1) {
+        // number of entries after the merge
+        int total = itemNumber;
+        for (int i = 0, j = 0; j < T1.itemNumber;) {
+            if (i < itemNumber && ranks[i] < T1.ranks[j]) {
+                i++;
             } else {
-                // Insert T1.items[i] with it counts and child at the appropiate place of T2 obeyin the order
-                this.getItems().add((Entry) item.clone());
-                this.getItems().sort(Collections.reverseOrder((o1, o2) -> {
-                    double gr1 = supportRatio.get(o1.getItem());
-                    double gr2 = supportRatio.get(o2.getItem());
-                    if (gr1 > gr2) {
-                        return 1;
-                    } else if (gr1 < gr2) {
-                        return 1;
+                if (i >= itemNumber || ranks[i] != T1.ranks[j]) {
+                    total++;
+                } else {
+                    i++;
+                }
+                j++;
+            }
+        }
+        ensureCapacity(total);
+
+        int i = itemNumber - 1;
+        int j = T1.itemNumber - 1;
+        for (int w = total - 1; j >= 0; w--) {
+            if (i >= 0 && ranks[i] > T1.ranks[j]) {
+                move(i, w);
+                i--;
+            } else if (i >= 0 && ranks[i] == T1.ranks[j]) {
+                // T2.items[j] found: sum the counts and merge the subtrees
+                move(i, w);
+                countsD1[w] += T1.countsD1[j];
+                countsD2[w] += T1.countsD2[j];
+                if (T1.children[j] != null) {
+                    if (children[w] == null) {
+                        children[w] = T1.children[j].copy();
                     } else {
-                        return -1*((NominalItem) o1.getItem()).compareTo(o2.getItem());
+                        children[w].merge(T1.children[j]);
                     }
-                }));
-                this.itemNumber++;
-                pos = this.getItems().indexOf(item);
+                }
+                i--;
+                j--;
+            } else {
+                // Insert T1.items[i] with its counts and a copy of its child
+                ranks[w] = T1.ranks[j];
+                countsD1[w] = T1.countsD1[j];
+                countsD2[w] = T1.countsD2[j];
+                children[w] = T1.children[j] == null ? null : T1.children[j].copy();
+                j--;
             }
-            // If T1.items subtree is not empty
-            if (item.getChild() != null) {
-                // If T2.items[j] subtree is empty
-                if (this.getItems().get(pos).getChild() == null) {
-                    // create a new node as this.items[j] subtree
-                    this.getItems().get(pos).setChild(new Node());
+        }
+        itemNumber = total;
+    }
+
+    /**
+     * Builds the projection of the given item in the subtree of this node,
+     * i.e., a node with a single entry for the item whose counts are the sum
+     * of the counts of all the entries of the item in the subtree, and whose
+     * child is the merge of all their children. This is the entry the item
+     * would have in this node after merging the subtrees of all the previous
+     * entries. This node is only read, so several projections can be built at
+     * the same time.
+     *
+     * @param rank The rank of the item
+     * @return The projection, which is empty if the item does not appear in
+     * the subtree.
+     */
+    public Node project(int rank) {
+        Node projection = new Node(1);
+        project(rank, projection);
+        return projection;
+    }
+
+    /**
+     * Recursive function to build the projection of an item
+     */
+    private void project(int rank, Node projection) {
+        // Only the entries of items before the given one can contain it
+        for (int i = 0; i < itemNumber && ranks[i] <= rank; i++) {
+            if (ranks[i] == rank) {
+                if (projection.itemNumber == 0) {
+                    projection.ranks[0] = rank;
+                    projection.itemNumber = 1;
+                }
+                projection.countsD1[0] += countsD1[i];
+                projection.countsD2[0] += countsD2[i];
+                if (children[i] != null) {
+                    if (projection.children[0] == null) {
+                        projection.children[0] = children[i].copy();
+                    } else {
+                        projection.children[0].merge(children[i]);
+                    }
                 }
-                // recursive call
-                this.items.get(pos).getChild().merge(item.getChild(), supportRatio);
+            } else if (children[i] != null) {
+                children[i].project(rank, projection);
+            }
+        }
+    }
+
+    /**
+     * Binary search of an entry by the rank of its item
+     *
+     * @param rank
+     * @return The position of the entry, or {@code -(insertion point) - 1} if
+     * it does not exist
+     */
+    private int search(int rank) {
+        int low = 0;
+        int high = itemNumber - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranks[mid] < rank) {
+                low = mid + 1;
+            } else if (ranks[mid] > rank) {
+                high = mid - 1;
+            } else {
+                return mid;
             }
         }
+        return -(low + 1);
+    }
+
+    /**
+     * Inserts an empty entry at the given position, shifting the following
+     * ones
+     */
+    private void insertEntry(int pos, int rank) {
+        ensureCapacity(itemNumber + 1);
+        int moved = itemNumber - pos;
+        System.arraycopy(ranks, pos, ranks, pos + 1, moved);
+        System.arraycopy(countsD1, pos, countsD1, pos + 1, moved);
+        System.arraycopy(countsD2, pos, countsD2, pos + 1, moved);
+        System.arraycopy(children, pos, children, pos + 1, moved);
+        ranks[pos] = rank;
+        countsD1[pos] = 0;
+        countsD2[pos] = 0;
+        children[pos] = null;
+        itemNumber++;
+    }
+
+    /**
+     * Moves the entry at position {@code from} to position {@code to}
+     */
+    private void move(int from, int to) {
+        if (from != to) {
+            ranks[to] = ranks[from];
+            countsD1[to] = countsD1[from];
+            countsD2[to] = countsD2[from];
+            children[to] = children[from];
+            children[from] = null;
+        }
+    }
+
+    /**
+     * Grows the arrays, if needed, to store the given number of entries
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > ranks.length) {
+            int newLength = Math.max(capacity, ranks.length * 2);
+            ranks = Arrays.copyOf(ranks, newLength);
+            countsD1 = Arrays.copyOf(countsD1, newLength);
+            countsD2 = Arrays.copyOf(countsD2, newLength);
+            children = Arrays.copyOf(children, newLength);
+        }
     }
 
     /**
@@ -211,16 +313,42 @@ public class Node {
     }
 
     /**
-     * @return the items
+     * @param pos The position of the entry
+     * @return the rank of the item of the entry
+     */
+    public int getRank(int pos) {
+        return ranks[pos];
+    }
+
+    /**
+     * @param pos The position of the entry
+     * @return the counts in D1 of the entry
+     */
+    public int getCountD1(int pos) {
+        return countsD1[pos];
+    }
+
+    /**
+     * @param pos The position of the entry
+     * @return the counts in D2 of the entry
+     */
+    public int getCountD2(int pos) {
+        return countsD2[pos];
+    }
+
+    /**
+     * @param pos The position of the entry
+     * @return the child of the entry
      */
-    public ArrayList<Entry> getItems() {
-        return items;
+    public Node getChild(int pos) {
+        return children[pos];
     }
 
     /**
-     * @param itemNumber the itemNumber to set
+     * @param pos The position of the entry
+     * @param child the child to set
      */
-    public void setItemNumber(int itemNumber) {
-        this.itemNumber = itemNumber;
+    public void setChild(int pos, Node child) {
+        children[pos] = child;
     }
 }
@@ -4,33 +4,59 @@ import java.util.*;
 public class Randomize {
 	private static long Seed;
 	private static MTwister generador = new MTwister();
+	private static final ThreadLocal<MTwister> stream = new ThreadLocal<MTwister>();
 	public static void setSeed (long semilla) {
 		Seed = semilla;
 		generador.init_genrand(Seed);
 	}
+	/** newStream creates the generator of an independent stream of random numbers. The stream only
+	 * depends on the seed and on its number, so a task always draws the same numbers whatever the
+	 * thread that runs it, and the tasks do not share any generator
+	 * @param number Number of the stream
+	 * @return A new generator for the stream
+	 */
+	public static MTwister newStream (long number) {
+		return new MTwister(new long[] {Seed & 0xffffffffL, Seed >>> 32, number & 0xffffffffL, number >>> 32});
+	}
+	/** setStream makes the calling thread draw its numbers from the stream with the given number,
+	 * until clearStream is called. The rest of the threads keep using their own streams or the main generator
+	 * @param number Number of the stream
+	 */
+	public static void setStream (long number) {
+		stream.set(newStream(number));
+	}
+	/** clearStream makes the calling thread draw its numbers from the main generator again
+	 */
+	public static void clearStream () {
+		stream.remove();
+	}
+	private static MTwister generator () {
+		MTwister g = stream.get();
+		return g == null ? generador : g;
+	}
 	/** Rand computes a psuedo-random float value between 0 and 1, excluding 1 
 	 * @return A uniform-distributed real value in [0,1) 
 	 */
 	public static double Rand () {
-		return (generador.genrand_res53());
+		return (generator().genrand_res53());
 	}
 	/** RandOpen computes a psuedo-random float value between 0 and 1, excluding 0 and 1  
 	 * @return A uniform-distributed real value in (0,1)
 	 */
 	public static double RandOpen () {
-		return (generador.genrand_real3());
+		return (generator().genrand_real3());
 	}
 	/** RandClosed computes a psuedo-random float value between 0 and 1 inclusive  
 	 * @return A uniform-distributed real value in [0,1]
 	 */
 	public static double RandClosed () {
-		return (generador.genrand_real1());
+		return (generator().genrand_real1());
 	}
 	/** RandGaussian generates a standardized gaussian random number  
 	 * @return A normal-distributed real value with mean 0 and standard deviation equal to 1
 	 */
 	public static double RandGaussian () {
-		return (generador.genrand_gaussian());
+		return (generator().genrand_gaussian());
 	}
 
 	/** Randint gives an integer value between low and high, excluding high
@@ -39,7 +65,7 @@ public class Randomize {
 	 * @return A uniform-distributed integer value in [low,high)
 	 */
 	public static int Randint (int low, int high) {
-		return ((int) (low + (high - low) * generador.genrand_res53()));
+		return ((int) (low + (high - low) * generator().genrand_res53()));
 	}
 	/** RandintOpen gives an integer value between low and high, excluding 0 and 1
 	 * @param low Lower bound (NOT included)
@@ -49,7 +75,7 @@ public class Randomize {
 	public static int RandintOpen (int low, int high) {
 		//we use low+1, to avoid that "low" could appear, since genrand_res53()
 		//draws a real value in [0,1)
-		return ((int) ((low+1) + (high - (low+1)) * generador.genrand_res53()));
+		return ((int) ((low+1) + (high - (low+1)) * generator().genrand_res53()));
 	}
 	/** RandintClosed gives an integer value between low and high inclusive
 	 * @param low Lower bound (included)
@@ -60,7 +86,7 @@ public class Randomize {
 		//since genrand_res53() generates a double in [0,1), we increment
 		//high by one, so "high" can appear with same probability as the rest of
 		//numbers in the interval
-		return ((int) (low + ((high+1) - low) * generador.genrand_res53()));
+		return ((int) (low + ((high+1) - low) * generator().genrand_res53()));
 	}
 	/** Randdouble gives an double value between low and high, excluding high
 	 * @param low Lower bound (included)
@@ -68,7 +94,7 @@ public class Randomize {
 	 * @return A uniform-distributed real value in [low,high)
 	 */
 	public static double Randdouble (double low, double high) {
-		return (low + (high-low) * generador.genrand_res53());
+		return (low + (high-low) * generator().genrand_res53());
 	}
 	/** RanddoubleOpen gives an double value between low and high, excluding low and high
 	 * @param low Lower bound (NOT included)
@@ -76,7 +102,7 @@ public class Randomize {
 	 * @return A uniform-distributed real value in (low,high)
 	 */
 	public static double RanddoubleOpen (double low, double high) {
-		return (low + (high-low) * generador.genrand_real3());
+		return (low + (high-low) * generator().genrand_real3());
 	}
 	/** RanddoubleClosed gives an double value between low and high inclusive
 	 * @param low Lower bound (included)
@@ -84,7 +110,7 @@ public class Randomize {
 	 * @return A uniform-distributed real value in [low,high]
 	 */
 	public static double RanddoubleClosed (double low, double high) {
-		return (low + (high-low) * generador.genrand_real1());
+		return (low + (high-low) * generator().genrand_real1());
 	}
 }
 
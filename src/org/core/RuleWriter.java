@@ -0,0 +1,142 @@
+package org.core;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Buffered writer for the rules generated during a run. It replaces the
+ * per-rule calls to File.AddtoFile, which open, seek, write and close the
+ * file for every rule.
+ * </p>
+ *
+ * @author Ángel M. García-Vico
+ * @version 1.0
+ * @since JDK 1.8
+ */
+public class RuleWriter implements Closeable {
+
+    /** Marks the end of the queue of an asynchronous writer */
+    private static final String END = new String();
+
+    private Writer out;
+    private BlockingQueue<String> queue;
+    private Thread consumer;
+
+    /**
+     * <p>
+     * Builds a writer which discards everything written on it
+     * </p>
+     */
+    public RuleWriter() {
+        out = null;
+    }
+
+    /**
+     * <p>
+     * Builds a writer that appends the rules to a file. If the name of the
+     * file is null or empty, the output is turned off and the rules are
+     * discarded.
+     * </p>
+     * @param fileName Name of the file
+     * @param async If true, the rules are written by a background thread, so
+     * the caller never blocks on the disk
+     */
+    public RuleWriter(String fileName, boolean async) {
+        if (fileName == null || fileName.isEmpty()) {
+            out = null;
+            return;
+        }
+        try {
+            out = new BufferedWriter(new FileWriter(fileName, true));
+        }
+        catch (IOException e) {
+            Logger.getLogger(RuleWriter.class.getName()).log(Level.SEVERE, null, e);
+            out = null;
+            return;
+        }
+        if (async) {
+            queue = new LinkedBlockingQueue<>();
+            consumer = new Thread(this::drain, "RuleWriter-" + fileName);
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+    }
+
+    /**
+     * <p>
+     * Whether the rules written are stored or discarded
+     * </p>
+     * @return True if the output is turned on
+     */
+    public boolean isEnabled() {
+        return out != null;
+    }
+
+    /**
+     * <p>
+     * Writes a piece of text in the file
+     * </p>
+     * @param content The content to be written
+     */
+    public void write(String content) {
+        if (out == null || content.isEmpty()) {
+            return;
+        }
+        if (queue != null) {
+            queue.add(content);
+        } else {
+            append(content);
+        }
+    }
+
+    /**
+     * <p>
+     * Writes any pending rule and closes the file
+     * </p>
+     */
+    @Override
+    public void close() {
+        if (out == null) {
+            return;
+        }
+        if (queue != null) {
+            queue.add(END);
+            try {
+                consumer.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            out.close();
+        }
+        catch (IOException e) {
+            Logger.getLogger(RuleWriter.class.getName()).log(Level.SEVERE, null, e);
+        }
+        out = null;
+    }
+
+    private synchronized void append(String content) {
+        try {
+            out.write(content);
+        }
+        catch (IOException e) {
+            Logger.getLogger(RuleWriter.class.getName()).log(Level.SEVERE, null, e);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (String content = queue.take(); content != END; content = queue.take()) {
+                append(content);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}